@@ -3,15 +3,34 @@ package fr.fistin.hydra.api;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import fr.fistin.hydra.api.event.HydraEventBus;
+import fr.fistin.hydra.api.player.HydraPlayerLocation;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import fr.fistin.hydra.api.protocol.HydraChannel;
 import fr.fistin.hydra.api.protocol.HydraConnection;
 import fr.fistin.hydra.api.protocol.heartbeat.HydraHeartbeatTask;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadMetrics;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadQueryPacket;
+import fr.fistin.hydra.api.protocol.response.HydraResponseType;
 import fr.fistin.hydra.api.proxy.HydraProxiesService;
+import fr.fistin.hydra.api.proxy.HydraProxyRecord;
 import fr.fistin.hydra.api.redis.HydraPubSub;
+import fr.fistin.hydra.api.redis.HydraRedisCache;
+import fr.fistin.hydra.api.redis.HydraRedisFetcher;
+import fr.fistin.hydra.api.redis.HydraRedisTransport;
 import fr.fistin.hydra.api.redis.IHydraRedis;
+import fr.fistin.hydra.api.server.HydraServerRecord;
 import fr.fistin.hydra.api.server.HydraServersService;
+import fr.fistin.hydra.api.stats.HydraStats;
+import fr.fistin.hydra.api.transport.IHydraTransport;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +59,18 @@ public class HydraAPI {
     private final String application;
     /** The {@link IHydraRedis} instance */
     private final IHydraRedis redis;
+    /** The transport used to send and receive messages */
+    private final IHydraTransport transport;
+    /** The fetcher used to get many values from Redis */
+    private final HydraRedisFetcher redisFetcher;
+    /** The delay between two reconciliations of the local registries (in seconds). -1 if they are not enabled */
+    private final int registryReconciliationDelay;
+    /** The client-side cache of the servers and proxies (<code>null</code> if it's not enabled) */
+    private final HydraRedisCache redisCache;
+    /** The provider of the load metrics sent with the heartbeats (<code>null</code> if they are not sent) */
+    private final Supplier<HydraLoadMetrics> loadMetricsProvider;
+    /** Whether the events sent by the nodes running an older API (class name and Base64 JSON, on the events channel) are accepted */
+    private final boolean legacyEvents;
     /** An executor service that can schedule tasks */
     private final ScheduledExecutorService executorService;
     /** Redis PubSub instance */
@@ -52,6 +83,8 @@ public class HydraAPI {
     private final HydraServersService serversService;
     /** THe service to interact with proxies system */
     private final HydraProxiesService proxiesService;
+    /** The service to find the players on the network */
+    private final HydraPlayersService playersService;
 
     /**
      * Constructor of {@link HydraAPI}
@@ -61,19 +94,32 @@ public class HydraAPI {
      * @param logger The logger used to print info
      * @param logHeader The log header used by the logger
      * @param redis The {@link IHydraRedis} instance
+     * @param transport The {@link IHydraTransport} instance
+     * @param fetchBatchSize The amount of records fetched in one Redis pipeline
+     * @param registryReconciliationDelay The delay between two reconciliations of the local registries; or -1 to disable them
+     * @param redisCacheSize The maximum amount of servers and proxies in the client-side cache; or -1 to disable it
+     * @param loadMetricsProvider The provider of the load metrics sent with the heartbeats; or <code>null</code>
+     * @param legacyEvents Whether the events sent by the nodes running an older API are accepted
      */
-    private HydraAPI(Type type, String application, Logger logger, String logHeader, IHydraRedis redis) {
+    private HydraAPI(Type type, String application, Logger logger, String logHeader, IHydraRedis redis, IHydraTransport transport, int fetchBatchSize, int registryReconciliationDelay, int redisCacheSize, Supplier<HydraLoadMetrics> loadMetricsProvider, boolean legacyEvents) {
         this.type = type;
         this.application = application;
         HydraAPI.logger = logger;
         HydraAPI.logHeader = logHeader;
         this.redis = redis;
+        this.transport = transport;
+        this.redisFetcher = new HydraRedisFetcher(fetchBatchSize);
+        this.registryReconciliationDelay = registryReconciliationDelay;
+        this.loadMetricsProvider = loadMetricsProvider;
+        this.legacyEvents = legacyEvents;
         this.executorService = Executors.newScheduledThreadPool(32);
+        this.redisCache = redisCacheSize > 0 ? new HydraRedisCache(redis, this.executorService, redisCacheSize, this.getCachedKeyPrefixes()) : null;
         this.pubSub = new HydraPubSub(this);
         this.connection = new HydraConnection(this);
         this.eventBus = new HydraEventBus(this);
         this.serversService = new HydraServersService(this);
         this.proxiesService = new HydraProxiesService(this);
+        this.playersService = new HydraPlayersService(this);
     }
 
     /**
@@ -85,6 +131,15 @@ public class HydraAPI {
         this.pubSub.start();
         this.eventBus.start();
 
+        if (this.redisCache != null) {
+            this.redisCache.start();
+        }
+
+        if (this.registryReconciliationDelay > 0) {
+            this.serversService.startRegistry(this.registryReconciliationDelay);
+            this.proxiesService.startRegistry(this.registryReconciliationDelay);
+        }
+
         new HydraHeartbeatTask(this).start();
     }
 
@@ -95,9 +150,27 @@ public class HydraAPI {
         log("Stopping " + NAME + " (reason: " + reason + ")...");
 
         this.pubSub.stop();
+
+        if (this.redisCache != null) {
+            this.redisCache.stop();
+        }
+
         this.executorService.shutdown();
     }
 
+    /**
+     * Get the prefixes of the Redis keys read by the client-side cache
+     *
+     * @return A list of key prefixes
+     */
+    private List<String> getCachedKeyPrefixes() {
+        final List<String> prefixes = new ArrayList<>(HydraServerRecord.getKeyPrefixes());
+
+        prefixes.addAll(HydraProxyRecord.getKeyPrefixes());
+
+        return prefixes;
+    }
+
     /**
      * Print a message in the terminal
      *
@@ -136,14 +209,37 @@ public class HydraAPI {
     }
 
     /**
-     * Get the {@link IHydraRedis} instance
+     * Get the {@link IHydraRedis} instance.<br>
+     * The servers, proxies and players services and the stats are read from Redis, they cannot be used without it.
      *
      * @return The {@link IHydraRedis} instance
+     * @throws HydraException if HydraAPI was built without Redis (only with a custom {@link IHydraTransport})
      */
     public IHydraRedis getRedis() {
+        if (this.redis == null) {
+            throw new HydraException("HydraAPI was built without Redis, the servers, proxies, players and stats cannot be read!");
+        }
         return this.redis;
     }
 
+    /**
+     * Check whether HydraAPI was built with Redis
+     *
+     * @return <code>true</code> if Redis is available
+     */
+    public boolean hasRedis() {
+        return this.redis != null;
+    }
+
+    /**
+     * Get the transport used to send and receive messages
+     *
+     * @return The {@link IHydraTransport} instance
+     */
+    public IHydraTransport getTransport() {
+        return this.transport;
+    }
+
     /**
      * Get the executor service that can schedule tasks
      *
@@ -162,6 +258,24 @@ public class HydraAPI {
         return this.pubSub;
     }
 
+    /**
+     * Get the fetcher used to get many values from Redis
+     *
+     * @return The {@link HydraRedisFetcher} instance
+     */
+    public HydraRedisFetcher getRedisFetcher() {
+        return this.redisFetcher;
+    }
+
+    /**
+     * Get the client-side cache of the servers and proxies (e.g. to read its hits and misses)
+     *
+     * @return The {@link HydraRedisCache} instance; or <code>null</code> if it's not enabled
+     */
+    public HydraRedisCache getRedisCache() {
+        return this.redisCache;
+    }
+
     /**
      * Get Hydra connection instance
      *
@@ -198,6 +312,70 @@ public class HydraAPI {
         return this.proxiesService;
     }
 
+    /**
+     * Get the service used to find the players on the network
+     *
+     * @return The {@link HydraPlayersService} instance
+     */
+    public HydraPlayersService getPlayersService() {
+        return this.playersService;
+    }
+
+    /**
+     * Find where a player is connected on the network
+     *
+     * @param player The player to find
+     * @return The {@link HydraPlayerLocation} of the player; or <code>null</code> if the player is not connected
+     */
+    public HydraPlayerLocation findPlayer(UUID player) {
+        return this.playersService.findPlayer(player);
+    }
+
+    /**
+     * Get the counters of the network (players, servers and proxies).<br>
+     * The counters are maintained by Hydra, so it's a single Redis read whatever the size of the network.
+     *
+     * @return The {@link HydraStats} of the network
+     */
+    public HydraStats getStats() {
+        return new HydraStats(this.getRedis().get(jedis -> jedis.hgetAll(HydraStats.HASH)));
+    }
+
+    /**
+     * Get the provider of the load metrics sent with the heartbeats
+     *
+     * @return A {@link HydraLoadMetrics} provider; or <code>null</code> if the heartbeats don't carry them
+     */
+    public Supplier<HydraLoadMetrics> getLoadMetricsProvider() {
+        return this.loadMetricsProvider;
+    }
+
+    /**
+     * Check whether the events sent by the nodes running an older API are accepted
+     *
+     * @return <code>true</code> if the legacy events are received
+     */
+    public boolean acceptsLegacyEvents() {
+        return this.legacyEvents;
+    }
+
+    /**
+     * Get the last load metrics of a server or a proxy by querying Hydra.<br>
+     * Hydra keeps the metrics sent with the last heartbeats in memory, so it doesn't cost any Redis read.
+     *
+     * @param name The name of the server or proxy
+     * @param callback The consumer to trigger with the metrics, from the oldest to the newest (empty if the server or proxy is unknown)
+     */
+    public void getLoadMetrics(String name, Consumer<List<HydraLoadMetrics>> callback) {
+        this.connection.sendPacket(HydraChannel.QUERY, new HydraLoadQueryPacket(name))
+                .withResponseCallback(response -> {
+                    final HydraLoadMetrics[] metrics = response.getType() == HydraResponseType.OK ? response.getMessage(HydraLoadMetrics[].class) : null;
+
+                    callback.accept(metrics != null ? Arrays.asList(metrics) : new ArrayList<>());
+                })
+                .exec();
+    }
+
     /**
      * The builder class of {@link HydraAPI}
      */
@@ -213,6 +391,18 @@ public class HydraAPI {
         private String logHeader = null;
         /** The {@link IHydraRedis} instance */
         private IHydraRedis redis;
+        /** The {@link IHydraTransport} instance. If <code>null</code>, Redis PubSub will be used */
+        private IHydraTransport transport;
+        /** The amount of records fetched in one Redis pipeline */
+        private int fetchBatchSize = HydraRedisFetcher.DEFAULT_BATCH_SIZE;
+        /** The delay between two reconciliations of the local registries (in seconds). -1 if they are not enabled */
+        private int registryReconciliationDelay = -1;
+        /** The maximum amount of servers and proxies in the client-side cache. -1 if it's not enabled */
+        private int redisCacheSize = -1;
+        /** The provider of the load metrics sent with the heartbeats. <code>null</code> if they are not sent */
+        private Supplier<HydraLoadMetrics> loadMetricsProvider;
+        /** Whether the events sent by the nodes running an older API are accepted */
+        private boolean legacyEvents = true;
 
         /**
          * Constructor of {@link Builder}
@@ -280,15 +470,111 @@ public class HydraAPI {
             return this;
         }
 
+        /**
+         * Set the {@link IHydraTransport} instance used to send and receive messages.<br>
+         * By default, messages go through Redis PubSub.
+         *
+         * @param transport New {@link IHydraTransport}
+         * @return This {@link Builder} instance
+         */
+        public Builder withTransport(IHydraTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Set the amount of servers or proxies fetched in one Redis pipeline when getting many of them
+         *
+         * @param fetchBatchSize New batch size (must be positive)
+         * @return This {@link Builder} instance
+         */
+        public Builder withFetchBatchSize(int fetchBatchSize) {
+            if (fetchBatchSize <= 0) {
+                throw new HydraException("The fetch batch size must be positive!");
+            }
+
+            this.fetchBatchSize = fetchBatchSize;
+            return this;
+        }
+
+        /**
+         * Enable the local registries of the servers and proxies.<br>
+         * The servers and proxies are loaded once from Redis, then kept up to date by the events sent by Hydra:
+         * getting them from {@link HydraServersService} or {@link HydraProxiesService} doesn't query Redis anymore.
+         *
+         * @param reconciliationDelay The delay between two reconciliations of the registries with Redis (in seconds, must be positive)
+         * @return This {@link Builder} instance
+         */
+        public Builder withRegistry(int reconciliationDelay) {
+            if (reconciliationDelay <= 0) {
+                throw new HydraException("The registry reconciliation delay must be positive!");
+            }
+
+            this.registryReconciliationDelay = reconciliationDelay;
+            return this;
+        }
+
+        /**
+         * Enable the client-side cache of the servers and proxies (requires Redis 6 or newer).<br>
+         * The servers and proxies got by their name are kept in memory, and dropped as soon as Redis tells that they were modified.
+         *
+         * @param maxSize The maximum amount of cached servers and proxies (must be positive). The least recently used ones are evicted first
+         * @return This {@link Builder} instance
+         */
+        public Builder withRedisCache(int maxSize) {
+            if (maxSize <= 0) {
+                throw new HydraException("The Redis cache size must be positive!");
+            }
+
+            this.redisCacheSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Send load metrics with each heartbeat of the server or proxy.<br>
+         * Hydra keeps the last ones, they can be got with {@link HydraAPI#getLoadMetrics(String, Consumer)}.
+         *
+         * @param loadMetricsProvider The provider called before each heartbeat (e.g. <code>() -&gt; new HydraLoadMetrics().withJvmMetrics()</code>)
+         * @return This {@link Builder} instance
+         */
+        public Builder withLoadMetrics(Supplier<HydraLoadMetrics> loadMetricsProvider) {
+            this.loadMetricsProvider = loadMetricsProvider;
+            return this;
+        }
+
+        /**
+         * Set whether the events sent by the nodes running an older API (identified by their class name, on the events channel) are accepted.<br>
+         * Enabled by default, to not drop the events of the nodes that are not updated yet during a rollout.
+         * It can be disabled once all the nodes of the network run this version.
+         *
+         * @param legacyEvents <code>true</code> to accept the legacy events
+         * @return This {@link Builder} instance
+         */
+        public Builder withLegacyEvents(boolean legacyEvents) {
+            this.legacyEvents = legacyEvents;
+            return this;
+        }
+
         /**
          * Build the builder to an instance of {@link HydraAPI}<br>
-         * Warning: some builder variables cannot be null!
+         * Warning: some builder variables cannot be null!<br>
+         * Redis can only be omitted if a custom {@link IHydraTransport} is provided.
+         * The servers, proxies and players services and the stats cannot be used then (see {@link HydraAPI#getRedis()}).
          *
          * @return The created {@link HydraAPI} instance
          */
         public HydraAPI build() {
-            if (this.type != null && this.logger != null && this.redis != null) {
-                return new HydraAPI(this.type, this.application, this.logger, this.logHeader, this.redis);
+            if (this.redis == null && this.redisCacheSize > 0) {
+                throw new HydraException("Cannot enable the Redis cache without Redis!");
+            }
+            if (this.redis == null && this.registryReconciliationDelay > 0) {
+                throw new HydraException("Cannot enable the registries without Redis!");
+            }
+
+            if (this.type != null && this.logger != null && (this.redis != null || this.transport != null)) {
+                final IHydraTransport transport = this.transport != null ? this.transport : new HydraRedisTransport(this.redis);
+
+                return new HydraAPI(this.type, this.application, this.logger, this.logHeader, this.redis, transport, this.fetchBatchSize, this.registryReconciliationDelay, this.redisCacheSize, this.loadMetricsProvider, this.legacyEvents);
             }
             throw new HydraException("Cannot build HydraAPI with a null value!");
         }
@@ -1,14 +1,26 @@
 package fr.fistin.hydra.api.event;
 
 import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.HydraException;
 import fr.fistin.hydra.api.protocol.HydraChannel;
+import fr.fistin.hydra.api.redis.IHydraReceiver;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 
 /**
  * Project: Hydra
@@ -20,8 +32,24 @@ public class HydraEventBus {
     /** Encoded event message split char */
     private static final String SPLIT_CHAR = "&";
 
-    /** List of all {@link HydraEventContext} objects */
-    private final List<HydraEventContext<?>> contexts;
+    /** Empty array of contexts, shared by all the event classes without listeners */
+    private static final HydraEventContext<?>[] NO_CONTEXTS = new HydraEventContext<?>[0];
+
+    /** All the {@link HydraEventContext} objects indexed by their event type */
+    private final Map<Class<?>, List<HydraEventContext<?>>> contexts;
+    /** The contexts to call for each received event class (resolved from the event class and all its supertypes) */
+    private volatile ClassValue<HydraEventContext<?>[]> resolvedContexts;
+
+    /** The registry of the events that can be sent and received */
+    private final HydraEventRegistry registry;
+    /** The channels of the events that are currently listened */
+    private final Set<String> subscribedChannels;
+    /** The patterns of the channels of the topic events that are currently listened */
+    private final Set<String> subscribedPatterns;
+    /** The receiver subscribed on the channels of the listened events */
+    private final IHydraReceiver receiver;
+    /** The receiver of the events sent by the nodes running an older API */
+    private final IHydraReceiver legacyReceiver;
 
     /** {@link HydraAPI} instance */
     private final HydraAPI hydraAPI;
@@ -33,82 +61,421 @@ public class HydraEventBus {
      */
     public HydraEventBus(HydraAPI hydraAPI) {
         this.hydraAPI = hydraAPI;
-        this.contexts = new ArrayList<>();
+        this.registry = new HydraEventRegistry();
+        this.subscribedChannels = ConcurrentHashMap.newKeySet();
+        this.subscribedPatterns = ConcurrentHashMap.newKeySet();
+        this.contexts = new ConcurrentHashMap<>();
+        this.resolvedContexts = this.newResolvedContexts();
+        this.receiver = (channel, message) -> {
+            final HydraEvent event = this.decode(message);
+
+            if (event != null) {
+                this.dispatch(event);
+            }
+        };
+        this.legacyReceiver = (channel, message) -> {
+            final HydraEvent event = this.decodeLegacy(message);
+
+            if (event != null) {
+                this.dispatch(event);
+            }
+        };
+
+        this.registry.onRegister(entry -> this.updateSubscriptions());
     }
 
     /**
-     * Start the event bus by subscribing on events channel
+     * Start the event bus.<br>
+     * Events channels are only subscribed once a listener needs them.
+     * The events channel of the older API versions is subscribed too, if the legacy events are accepted.
      */
     public void start() {
         HydraAPI.log("Starting event bus...");
 
-        this.hydraAPI.getPubSub().subscribe(HydraChannel.EVENTS.getName(), (channel, message) -> {
-            final HydraEvent event = this.decode(message);
+        if (this.hydraAPI.acceptsLegacyEvents()) {
+            this.hydraAPI.getPubSub().subscribe(HydraChannel.EVENTS.getName(), this.legacyReceiver);
+        }
 
-            if (event != null) {
-                for (HydraEventContext<?> context : this.contexts) {
-                    // Check if the event type is the same as the received one
-                    if (context.getEventType().isAssignableFrom(event.getClass())) {
-                        try {
-                            // Invoke onEvent method
-                            final Method method = context.getEventListener().getClass().getMethod("onEvent", HydraEvent.class);
-
-                            method.setAccessible(true);
-                            method.invoke(context.getEventListener(), event);
-                        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-                            e.printStackTrace();
-                        }
-                    }
+        this.updateSubscriptions();
+    }
+
+    /**
+     * Update the subscribed channels to match the listeners of all the registered events.<br>
+     * A topic event is only published on the channel of its whole topic, so each needed channel of a topic event
+     * is subscribed with the pattern of its more specific channels.
+     */
+    private synchronized void updateSubscriptions() {
+        final Set<String> channels = new HashSet<>();
+        final Set<String> patterns = new HashSet<>();
+
+        for (HydraEventRegistry.Entry<?> entry : this.registry.getEntries()) {
+            final Set<String> neededChannels = this.getNeededChannels(entry);
+
+            channels.addAll(neededChannels);
+
+            if (IHydraTopicEvent.class.isAssignableFrom(entry.getEventClass())) {
+                for (String channel : neededChannels) {
+                    patterns.add(HydraEventFilter.getPattern(channel));
+                }
+            }
+        }
+
+        // Subscribe to the new channels before leaving the old ones to not miss any event
+        for (String channel : channels) {
+            if (this.subscribedChannels.add(channel)) {
+                this.hydraAPI.getPubSub().subscribe(channel, this.receiver);
+            }
+        }
+        for (String pattern : patterns) {
+            if (this.subscribedPatterns.add(pattern)) {
+                this.hydraAPI.getPubSub().psubscribe(pattern, this.receiver);
+            }
+        }
+
+        for (String channel : new ArrayList<>(this.subscribedChannels)) {
+            if (!channels.contains(channel)) {
+                this.subscribedChannels.remove(channel);
+                this.hydraAPI.getPubSub().unsubscribe(channel, this.receiver);
+            }
+        }
+        for (String pattern : new ArrayList<>(this.subscribedPatterns)) {
+            if (!patterns.contains(pattern)) {
+                this.subscribedPatterns.remove(pattern);
+                this.hydraAPI.getPubSub().punsubscribe(pattern, this.receiver);
+            }
+        }
+    }
+
+    /**
+     * Get the channels to subscribe to receive the events needed by the listeners of a registered event.<br>
+     * The channels never overlap (a channel covered by a more general one is dropped), so an event cannot be received twice.
+     *
+     * @param entry The registered event
+     * @return A set of channels
+     */
+    private Set<String> getNeededChannels(HydraEventRegistry.Entry<?> entry) {
+        final String baseChannel = entry.getChannel();
+        final Set<String> channels = new TreeSet<>();
+
+        for (HydraEventContext<?> context : this.resolvedContexts.get(entry.getEventClass())) {
+            final HydraEventFilter filter = context.getFilter();
+
+            if (filter == null) {
+                return Collections.singleton(baseChannel);
+            }
+
+            channels.add(filter.getChannel(baseChannel));
+        }
+
+        // Channels are sorted, so a general channel is always checked before the more specific ones it covers
+        final Set<String> neededChannels = new HashSet<>();
+
+        for (String channel : channels) {
+            boolean covered = false;
+
+            for (String neededChannel : neededChannels) {
+                if (channel.startsWith(neededChannel + ":")) {
+                    covered = true;
+                    break;
                 }
             }
-        });
+
+            if (!covered) {
+                neededChannels.add(channel);
+            }
+        }
+        return neededChannels;
+    }
+
+    /**
+     * Pass an event to all the local listeners of its class or one of its supertypes, without publishing it.<br>
+     * E.g. to pass an event rebuilt after some updates were missed.
+     *
+     * @param event The event to dispatch
+     */
+    public void dispatch(HydraEvent event) {
+        for (HydraEventContext<?> context : this.resolvedContexts.get(event.getClass())) {
+            if (context.accepts(event)) {
+                context.submit(event);
+            }
+        }
     }
 
     /**
-     * Subscribe a listener for an event type
+     * Register a listener for an event type
+     *
+     * @param eventClass Event type to listen
+     * @param options The options of the subscription (e.g. where the listener is executed)
+     * @param eventListener Listener to fire
+     * @param <E> Type
+     * @return The created {@link HydraEventContext} (e.g. to read the metrics of the listener)
+     */
+    public <E extends HydraEvent> HydraEventContext<E> register(Class<E> eventClass, HydraEventOptions options, HydraEventListener<E> eventListener) {
+        if (options.getFilter() != null && !IHydraTopicEvent.class.isAssignableFrom(eventClass)) {
+            throw new HydraException("Cannot filter " + eventClass.getName() + ", it's not a topic event!");
+        }
+
+        final HydraEventContext<E> context = new HydraEventContext<>(eventClass, eventListener, this.getExecutor(options), options.getFilter());
+
+        this.contexts.computeIfAbsent(eventClass, type -> new CopyOnWriteArrayList<>()).add(context);
+
+        // Drop the resolved contexts, they will be resolved again with the new listener on the next events
+        this.resolvedContexts = this.newResolvedContexts();
+
+        this.updateSubscriptions();
+
+        return context;
+    }
+
+    /**
+     * Register a listener for an event type, but only for the events with a topic accepted by a given filter.<br>
+     * The listener will be called on the thread that received the event.
+     *
+     * @param eventClass Event type to listen (must implement {@link IHydraTopicEvent})
+     * @param filter The filter to apply on the events topic
+     * @param eventListener Listener to fire
+     * @param <E> Type
+     * @return The created {@link HydraEventContext} (e.g. to read the metrics of the listener)
+     */
+    public <E extends HydraEvent> HydraEventContext<E> register(Class<E> eventClass, HydraEventFilter filter, HydraEventListener<E> eventListener) {
+        return this.register(eventClass, new HydraEventOptions().withFilter(filter), eventListener);
+    }
+
+    /**
+     * Register a listener for an event type.<br>
+     * The listener will be called on the thread that received the event.
+     *
+     * @param eventClass Event type to listen
+     * @param eventListener Listener to fire
+     * @param <E> Type
+     * @return The created {@link HydraEventContext} (e.g. to read the metrics of the listener)
+     */
+    public <E extends HydraEvent> HydraEventContext<E> register(Class<E> eventClass, HydraEventListener<E> eventListener) {
+        return this.register(eventClass, new HydraEventOptions(), eventListener);
+    }
+
+    /**
+     * Subscribe a listener for an event type.<br>
+     * Use {@link #register(Class, HydraEventOptions, HydraEventListener)} to get the created {@link HydraEventContext}.
+     *
+     * @param eventClass Event type to listen
+     * @param options The options of the subscription (e.g. where the listener is executed)
+     * @param eventListener Listener to fire
+     * @param <E> Type
+     */
+    public <E extends HydraEvent> void subscribe(Class<E> eventClass, HydraEventOptions options, HydraEventListener<E> eventListener) {
+        this.register(eventClass, options, eventListener);
+    }
+
+    /**
+     * Subscribe a listener for an event type, but only for the events with a topic accepted by a given filter.<br>
+     * E.g. <code>subscribe(HydraServerStartedEvent.class, new HydraEventFilter("bedwars"), listener)</code>.<br>
+     * The listener will be called on the thread that received the event.
+     *
+     * @param eventClass Event type to listen (must implement {@link IHydraTopicEvent})
+     * @param filter The filter to apply on the events topic
+     * @param eventListener Listener to fire
+     * @param <E> Type
+     */
+    public <E extends HydraEvent> void subscribe(Class<E> eventClass, HydraEventFilter filter, HydraEventListener<E> eventListener) {
+        this.register(eventClass, filter, eventListener);
+    }
+
+    /**
+     * Subscribe a listener for an event type.<br>
+     * The listener will be called on the thread that received the event.
      *
      * @param eventClass Event type to listen
      * @param eventListener Listener to fire
      * @param <E> Type
      */
     public <E extends HydraEvent> void subscribe(Class<E> eventClass, HydraEventListener<E> eventListener) {
-        this.contexts.add(new HydraEventContext<>(eventClass, eventListener));
+        this.register(eventClass, eventListener);
     }
 
     /**
-     * Publish a given event
+     * Get the executor to run a listener on from its subscription options
+     *
+     * @param options The options of the subscription
+     * @return An {@link Executor}; or <code>null</code> if the listener must be called inline
+     */
+    private Executor getExecutor(HydraEventOptions options) {
+        switch (options.getExecution()) {
+            case ASYNC:
+                return this.hydraAPI.getExecutorService();
+            case EXECUTOR:
+                if (options.getExecutor() == null) {
+                    throw new HydraException("Cannot subscribe a listener on a null executor!");
+                }
+                return options.getExecutor();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get all the subscribed listeners (e.g. to read their metrics)
+     *
+     * @return A list of {@link HydraEventContext}
+     */
+    public List<HydraEventContext<?>> getContexts() {
+        final List<HydraEventContext<?>> contexts = new ArrayList<>();
+
+        for (List<HydraEventContext<?>> typeContexts : this.contexts.values()) {
+            contexts.addAll(typeContexts);
+        }
+        return contexts;
+    }
+
+    /**
+     * Create the cache of the contexts to call for each event class
+     *
+     * @return A new {@link ClassValue} resolving the contexts of a class from the current index
+     */
+    private ClassValue<HydraEventContext<?>[]> newResolvedContexts() {
+        return new ClassValue<HydraEventContext<?>[]>() {
+            @Override
+            protected HydraEventContext<?>[] computeValue(Class<?> eventClass) {
+                final List<HydraEventContext<?>> resolved = new ArrayList<>();
+
+                for (Class<?> type : getHierarchy(eventClass)) {
+                    resolved.addAll(contexts.getOrDefault(type, Collections.emptyList()));
+                }
+                return resolved.isEmpty() ? NO_CONTEXTS : resolved.toArray(NO_CONTEXTS);
+            }
+        };
+    }
+
+    /**
+     * Get a class and all its supertypes, from the most specific to the most general one
+     *
+     * @param clazz The class to get the hierarchy of
+     * @return A set of classes
+     */
+    private static Set<Class<?>> getHierarchy(Class<?> clazz) {
+        final Set<Class<?>> hierarchy = new LinkedHashSet<>();
+        final Deque<Class<?>> queue = new ArrayDeque<>();
+
+        queue.add(clazz);
+
+        while (!queue.isEmpty()) {
+            final Class<?> current = queue.poll();
+
+            if (hierarchy.add(current)) {
+                if (current.getSuperclass() != null) {
+                    queue.add(current.getSuperclass());
+                }
+
+                Collections.addAll(queue, current.getInterfaces());
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Publish a given event.<br>
+     * The event class must be registered in the {@link HydraEventRegistry}.
      *
      * @param event Event to publish
      * @param <E> Type
      */
     public <E extends HydraEvent> void publish(E event) {
-        this.hydraAPI.getPubSub().send(HydraChannel.EVENTS.getName(), this.encode(event));
+        final HydraEventRegistry.Entry<?> entry = this.registry.getEntry(event.getClass());
+
+        if (entry == null) {
+            throw new HydraException("Couldn't find the provided event in the registry! Event: " + event.getClass().getName() + ".");
+        }
+
+        final String message = entry.getId() + SPLIT_CHAR + HydraAPI.GSON.toJson(event);
+
+        // A topic event is only published once, on its most specific channel
+        final String channel = event instanceof IHydraTopicEvent ? HydraEventFilter.getChannel(entry.getChannel(), (IHydraTopicEvent) event) : entry.getChannel();
+
+        this.hydraAPI.getPubSub().send(channel, message);
     }
 
     /**
-     * Encode an event before sending it on PubSub
+     * Get the registry of the events that can be sent and received
      *
-     * @param event Event to encode
-     * @return Encoded event
+     * @return The {@link HydraEventRegistry} instance
      */
-    private String encode(HydraEvent event) {
-        return event.getClass().getName() + SPLIT_CHAR + Base64.getEncoder().encodeToString(HydraAPI.GSON.toJson(event).getBytes(StandardCharsets.UTF_8));
+    public HydraEventRegistry getRegistry() {
+        return this.registry;
     }
 
     /**
      * Decode an event from a received message
      *
      * @param message Message to decode
-     * @return Decoded event
+     * @return Decoded and resolved event; or <code>null</code> if the message is not a registered event or if it was dropped by its resolver
      */
     private HydraEvent decode(String message) {
+        final HydraEventRegistry.Entry<?> entry;
+        final HydraEvent event;
+
+        try {
+            final int splitIndex = message.indexOf(SPLIT_CHAR);
+
+            entry = this.registry.getEntry(Integer.parseInt(message.substring(0, splitIndex)));
+
+            if (entry == null) {
+                return null;
+            }
+
+            event = HydraAPI.GSON.fromJson(message.substring(splitIndex + 1), entry.getEventClass());
+        } catch (Exception e) {
+            return null;
+        }
+
+        return this.resolve(entry, event);
+    }
+
+    /**
+     * Decode an event sent by a node running an older API: the class name of the event and its JSON encoded in Base64.<br>
+     * Only the registered events are decoded.
+     *
+     * @param message Message to decode
+     * @return Decoded and resolved event; or <code>null</code> if the message is not a registered event or if it was dropped by its resolver
+     */
+    private HydraEvent decodeLegacy(String message) {
+        HydraEventRegistry.Entry<?> entry = null;
+        final HydraEvent event;
+
         try {
-            final String[] splitRaw  = message.split(SPLIT_CHAR);
-            final Class<?> clazz = Class.forName(splitRaw[0]);
-            final String json = new String(Base64.getDecoder().decode(splitRaw[1]));
+            final String[] split = message.split(SPLIT_CHAR);
+
+            for (HydraEventRegistry.Entry<?> registered : this.registry.getEntries()) {
+                if (registered.getEventClass().getName().equals(split[0])) {
+                    entry = registered;
+                    break;
+                }
+            }
+
+            if (entry == null) {
+                return null;
+            }
 
-            return (HydraEvent) HydraAPI.GSON.fromJson(json, clazz);
+            event = HydraAPI.GSON.fromJson(new String(Base64.getDecoder().decode(split[1]), StandardCharsets.UTF_8), entry.getEventClass());
+        } catch (Exception e) {
+            return null;
+        }
+
+        return this.resolve(entry, event);
+    }
+
+    /**
+     * Pass a decoded event to the resolver of its registered event
+     *
+     * @param entry The registered event
+     * @param event The decoded event
+     * @return Resolved event; or <code>null</code> if it was dropped by its resolver
+     */
+    private HydraEvent resolve(HydraEventRegistry.Entry<?> entry, HydraEvent event) {
+        try {
+            return entry.resolve(event);
         } catch (Exception e) {
+            HydraAPI.log(Level.SEVERE, "An error occurred while resolving " + entry.getName() + " event! Error: " + e.getMessage());
+            e.printStackTrace();
             return null;
         }
     }
@@ -1,5 +1,14 @@
 package fr.fistin.hydra.api.event;
 
+import fr.fistin.hydra.api.HydraAPI;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
 /**
  * Project: Hydra
  * Created by AstFaster
@@ -7,21 +16,50 @@ package fr.fistin.hydra.api.event;
  */
 public class HydraEventContext<E extends HydraEvent> {
 
+    /** The maximum amount of events passed to the listener in one executor task */
+    private static final int MAX_EVENTS_PER_TASK = 64;
+
     /** Event's type */
     private final Class<E> eventType;
 
     /** Event's listener */
     private final HydraEventListener<E> eventListener;
 
+    /** The executor the listener runs on. If <code>null</code>, the listener is called inline */
+    private final Executor executor;
+    /** The filter applied on the topic of the events. If <code>null</code>, all the events are accepted */
+    private final HydraEventFilter filter;
+    /** The events waiting to be passed to the listener */
+    private final Queue<PendingEvent> queue;
+
+    /** Listener's metrics */
+    private final HydraEventMetrics metrics;
+
     /**
      * Constructor of {@link HydraEventContext}
      *
      * @param eventType Type
      * @param eventListener Listener
+     * @param executor The executor to run the listener on; or <code>null</code> to call it inline
+     * @param filter The filter applied on the topic of the events; or <code>null</code> to accept all the events
      */
-    public HydraEventContext(Class<E> eventType, HydraEventListener<E> eventListener) {
+    public HydraEventContext(Class<E> eventType, HydraEventListener<E> eventListener, Executor executor, HydraEventFilter filter) {
         this.eventType = eventType;
         this.eventListener = eventListener;
+        this.executor = executor;
+        this.filter = filter;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.metrics = new HydraEventMetrics();
+    }
+
+    /**
+     * Constructor of {@link HydraEventContext}
+     *
+     * @param eventType Type
+     * @param eventListener Listener
+     */
+    public HydraEventContext(Class<E> eventType, HydraEventListener<E> eventListener) {
+        this(eventType, eventListener, null, null);
     }
 
     /**
@@ -42,4 +80,151 @@ public class HydraEventContext<E extends HydraEvent> {
         return this.eventListener;
     }
 
+    /**
+     * Get the filter applied on the topic of the events
+     *
+     * @return A {@link HydraEventFilter}; or <code>null</code> if all the events are accepted
+     */
+    public HydraEventFilter getFilter() {
+        return this.filter;
+    }
+
+    /**
+     * Check whether an event is accepted by the context filter
+     *
+     * @param event The event to check
+     * @return <code>true</code> if the event can be passed to the listener
+     */
+    public boolean accepts(HydraEvent event) {
+        return this.filter == null || (event instanceof IHydraTopicEvent && this.filter.matches((IHydraTopicEvent) event));
+    }
+
+    /**
+     * Get the metrics of the listener
+     *
+     * @return The {@link HydraEventMetrics} of the listener
+     */
+    public HydraEventMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Call the listener with a received event.<br>
+     * The event must be an instance of the context's event type.
+     *
+     * @param event The event to pass to the listener
+     */
+    public void call(HydraEvent event) {
+        this.eventListener.onEvent(this.eventType.cast(event));
+    }
+
+    /**
+     * Submit a received event to the listener.<br>
+     * The listener is called inline or on its executor, but always in the order the events were submitted.
+     *
+     * @param event The event to pass to the listener
+     */
+    void submit(HydraEvent event) {
+        final long receivedTime = System.nanoTime();
+
+        if (this.executor == null) {
+            this.process(event, receivedTime);
+            return;
+        }
+
+        final AtomicInteger queueDepth = this.metrics.queueDepthCounter();
+
+        this.queue.add(new PendingEvent(event, receivedTime));
+
+        // Only schedule a task if there is not already one processing the queue
+        if (queueDepth.getAndIncrement() == 0) {
+            this.schedule();
+        }
+    }
+
+    /**
+     * Schedule a task processing the queue on the executor.<br>
+     * If the executor rejects it (e.g. it's shut down), the pending events are dropped and the listener is idle again.
+     */
+    private void schedule() {
+        try {
+            this.executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            final AtomicInteger queueDepth = this.metrics.queueDepthCounter();
+            int dropped = 0;
+
+            // Same as a drain, without calling the listener: the next submitted event schedules a new task
+            do {
+                final PendingEvent pending = this.queue.poll();
+
+                this.metrics.record(System.nanoTime() - pending.receivedTime, true);
+                dropped++;
+            } while (queueDepth.decrementAndGet() > 0);
+
+            HydraAPI.log(Level.SEVERE, "The executor of a " + this.eventType.getSimpleName() + " listener rejected its events, " + dropped + " event(s) dropped! Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pass the pending events to the listener
+     */
+    private void drain() {
+        final AtomicInteger queueDepth = this.metrics.queueDepthCounter();
+
+        for (int i = 0; i < MAX_EVENTS_PER_TASK; i++) {
+            final PendingEvent pending = this.queue.poll();
+
+            this.process(pending.event, pending.receivedTime);
+
+            if (queueDepth.decrementAndGet() == 0) {
+                return;
+            }
+        }
+
+        // Let other tasks run on the executor before processing the remaining events
+        this.schedule();
+    }
+
+    /**
+     * Call the listener and record its metrics
+     *
+     * @param event The event to pass to the listener
+     * @param receivedTime The time when the event was received (in nanoseconds)
+     */
+    private void process(HydraEvent event, long receivedTime) {
+        boolean failed = false;
+
+        try {
+            this.call(event);
+        } catch (Exception e) {
+            failed = true;
+
+            HydraAPI.log(Level.SEVERE, "An error occurred while passing " + event.getClass().getSimpleName() + " to a listener! Error: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        this.metrics.record(System.nanoTime() - receivedTime, failed);
+    }
+
+    /** An event waiting to be passed to the listener */
+    private static class PendingEvent {
+
+        /** The event to pass */
+        private final HydraEvent event;
+        /** The time when the event was received (in nanoseconds) */
+        private final long receivedTime;
+
+        /**
+         * Constructor of {@link PendingEvent}
+         *
+         * @param event The event to pass
+         * @param receivedTime The time when the event was received
+         */
+        public PendingEvent(HydraEvent event, long receivedTime) {
+            this.event = event;
+            this.receivedTime = receivedTime;
+        }
+
+    }
+
 }
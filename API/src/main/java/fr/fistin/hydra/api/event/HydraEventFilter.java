@@ -0,0 +1,117 @@
+package fr.fistin.hydra.api.event;
+
+import fr.fistin.hydra.api.HydraException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a filter on the topic of an {@link IHydraTopicEvent}.<br>
+ * E.g. a filter [bedwars] accepts all the bedwars servers events, a filter [bedwars, solo] only the bedwars solo ones.<br>
+ * The topic parts are escaped in the channels (<code>:</code> and <code>%</code> are percent-encoded), so a part can never be read as two.
+ */
+public class HydraEventFilter {
+
+    /** The topic accepted by the filter */
+    private final List<String> topic;
+
+    /**
+     * Constructor of {@link HydraEventFilter}
+     *
+     * @param topic The topic accepted by the filter, from the most general part to the most specific one
+     */
+    public HydraEventFilter(String... topic) {
+        if (topic.length == 0 || Arrays.asList(topic).contains(null)) {
+            throw new HydraException("An event filter cannot have an empty or null topic part!");
+        }
+
+        this.topic = Arrays.asList(topic);
+    }
+
+    /**
+     * Get the topic accepted by the filter
+     *
+     * @return A list of topic parts
+     */
+    public List<String> getTopic() {
+        return this.topic;
+    }
+
+    /**
+     * Check whether an event is accepted by the filter
+     *
+     * @param event The event to check
+     * @return <code>true</code> if the event topic starts with the filter topic
+     */
+    public boolean matches(IHydraTopicEvent event) {
+        final List<String> eventTopic = event.getTopic();
+
+        for (int i = 0; i < this.topic.size(); i++) {
+            if (i >= eventTopic.size() || !this.topic.get(i).equals(eventTopic.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the channel the events accepted by the filter with exactly its topic are published on.<br>
+     * The events with a more specific topic are published on the channels matching {@link #getPattern(String)}.
+     *
+     * @param baseChannel The channel of the event type
+     * @return A channel
+     */
+    public String getChannel(String baseChannel) {
+        return getChannel(baseChannel, this.topic);
+    }
+
+    /**
+     * Get the channel an event is published on: the most specific channel of its topic
+     *
+     * @param baseChannel The channel of the event type
+     * @param event The event to publish
+     * @return A channel
+     */
+    public static String getChannel(String baseChannel, IHydraTopicEvent event) {
+        return getChannel(baseChannel, event.getTopic());
+    }
+
+    /**
+     * Get the pattern matching all the channels more specific than a given one
+     *
+     * @param channel The channel (e.g. the one of a filter)
+     * @return A pattern, with the Redis glob syntax
+     */
+    public static String getPattern(String channel) {
+        final StringBuilder pattern = new StringBuilder();
+
+        for (char c : channel.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append(":*").toString();
+    }
+
+    /**
+     * Get the channel of a topic
+     *
+     * @param baseChannel The channel of the event type
+     * @param topic The topic parts. The topic stops at the first <code>null</code> part
+     * @return A channel
+     */
+    private static String getChannel(String baseChannel, List<String> topic) {
+        final StringBuilder channel = new StringBuilder(baseChannel);
+
+        for (String part : topic) {
+            if (part == null) {
+                break;
+            }
+
+            channel.append(':').append(part.replace("%", "%25").replace(":", "%3A"));
+        }
+        return channel.toString();
+    }
+
+}
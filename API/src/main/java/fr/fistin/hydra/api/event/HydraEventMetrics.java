@@ -0,0 +1,99 @@
+package fr.fistin.hydra.api.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents the metrics of a listener subscribed on the {@link HydraEventBus}.<br>
+ * The latency of an event is the time between its reception and the end of the listener call.
+ */
+public class HydraEventMetrics {
+
+    /** The amount of events passed to the listener */
+    private final LongAdder calls = new LongAdder();
+    /** The amount of listener calls that threw an error */
+    private final LongAdder failures = new LongAdder();
+    /** The sum of all the latencies (in nanoseconds) */
+    private final LongAdder totalLatency = new LongAdder();
+    /** The highest latency measured (in nanoseconds) */
+    private final AtomicLong maxLatency = new AtomicLong();
+    /** The amount of events waiting to be passed to the listener */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    /**
+     * Record a listener call
+     *
+     * @param latency The latency of the call (in nanoseconds)
+     * @param failed <code>true</code> if the listener threw an error
+     */
+    void record(long latency, boolean failed) {
+        this.calls.increment();
+        this.totalLatency.add(latency);
+        this.maxLatency.accumulateAndGet(latency, Math::max);
+
+        if (failed) {
+            this.failures.increment();
+        }
+    }
+
+    /**
+     * Get the counter of the events waiting to be passed to the listener
+     *
+     * @return An {@link AtomicInteger}
+     */
+    AtomicInteger queueDepthCounter() {
+        return this.queueDepth;
+    }
+
+    /**
+     * Get the amount of events passed to the listener
+     *
+     * @return A number of calls
+     */
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    /**
+     * Get the amount of listener calls that threw an error
+     *
+     * @return A number of failed calls
+     */
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    /**
+     * Get the average latency of the listener
+     *
+     * @param unit The unit of the returned value
+     * @return An average latency
+     */
+    public double getAverageLatency(TimeUnit unit) {
+        final long calls = this.calls.sum();
+
+        return calls == 0 ? 0 : (double) this.totalLatency.sum() / calls / unit.toNanos(1);
+    }
+
+    /**
+     * Get the highest latency measured for the listener
+     *
+     * @param unit The unit of the returned value
+     * @return A latency
+     */
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(this.maxLatency.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the amount of events waiting to be passed to the listener
+     *
+     * @return A queue depth
+     */
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+}
@@ -0,0 +1,93 @@
+package fr.fistin.hydra.api.event;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Represents the options used to subscribe a listener on the {@link HydraEventBus}.
+ */
+public class HydraEventOptions {
+
+    /** The way the listener will be executed */
+    private Execution execution = Execution.INLINE;
+    /** The executor to run the listener on (only used with {@link Execution#EXECUTOR}) */
+    private Executor executor = null;
+    /** The filter applied on the topic of the events (only for {@link IHydraTopicEvent}) */
+    private HydraEventFilter filter = null;
+
+    /**
+     * Get the way the listener will be executed
+     *
+     * @return An {@link Execution}
+     */
+    public Execution getExecution() {
+        return this.execution;
+    }
+
+    /**
+     * Set the way the listener will be executed
+     *
+     * @param execution The new {@link Execution}
+     * @return This {@link HydraEventOptions} instance
+     */
+    public HydraEventOptions withExecution(Execution execution) {
+        this.execution = execution;
+        return this;
+    }
+
+    /**
+     * Get the executor to run the listener on
+     *
+     * @return An {@link Executor}; or <code>null</code> if the listener doesn't run on a custom executor
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Run the listener on a given executor (e.g. the main thread of a Minecraft server).<br>
+     * The execution will be set to {@link Execution#EXECUTOR}.
+     *
+     * @param executor The executor to run the listener on
+     * @return This {@link HydraEventOptions} instance
+     */
+    public HydraEventOptions withExecutor(Executor executor) {
+        this.executor = executor;
+        this.execution = Execution.EXECUTOR;
+        return this;
+    }
+
+    /**
+     * Get the filter applied on the topic of the events
+     *
+     * @return A {@link HydraEventFilter}; or <code>null</code> if all the events are accepted
+     */
+    public HydraEventFilter getFilter() {
+        return this.filter;
+    }
+
+    /**
+     * Only receive the events whose topic is accepted by a given filter.<br>
+     * The filtering is done by Redis: the other events are not even received.
+     * Only events implementing {@link IHydraTopicEvent} can be filtered.
+     *
+     * @param filter The filter to apply
+     * @return This {@link HydraEventOptions} instance
+     */
+    public HydraEventOptions withFilter(HydraEventFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /** The different ways to execute a listener. Whatever the execution is, a listener always receives the events in order. */
+    public enum Execution {
+
+        /** The listener is called on the thread that received the event */
+        INLINE,
+        /** The listener is called on the shared executor of {@link fr.fistin.hydra.api.HydraAPI} */
+        ASYNC,
+        /** The listener is called on the executor provided with {@link #withExecutor(Executor)} */
+        EXECUTOR
+
+    }
+
+}
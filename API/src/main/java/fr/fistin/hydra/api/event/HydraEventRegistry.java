@@ -0,0 +1,236 @@
+package fr.fistin.hydra.api.event;
+
+import fr.fistin.hydra.api.HydraException;
+import fr.fistin.hydra.api.protocol.HydraChannel;
+import fr.fistin.hydra.api.proxy.event.HydraProxyStartedEvent;
+import fr.fistin.hydra.api.proxy.event.HydraProxyStoppedEvent;
+import fr.fistin.hydra.api.proxy.event.HydraProxyUpdatedEvent;
+import fr.fistin.hydra.api.server.event.HydraServerStartedEvent;
+import fr.fistin.hydra.api.server.event.HydraServerStoppedEvent;
+import fr.fistin.hydra.api.server.event.HydraServerUpdatedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The registry of all the events that can be sent on the {@link HydraEventBus}.<br>
+ * Each event class is linked to a compact numeric id, sent instead of the class name,
+ * and to a name, used to build the channel the event is published on.
+ */
+public class HydraEventRegistry {
+
+    /** The maximum id an event can have */
+    public static final int MAX_ID = 1023;
+
+    /** The registered events indexed by their id */
+    private volatile Entry<?>[] entriesById;
+    /** The registered events indexed by their class */
+    private final Map<Class<?>, Entry<?>> entriesByClass;
+
+    /** The action to perform each time an event is registered */
+    private Consumer<Entry<?>> registerListener;
+
+    /**
+     * Constructor of {@link HydraEventRegistry}.<br>
+     * Hydra events are registered by default.
+     */
+    public HydraEventRegistry() {
+        this.entriesById = new Entry<?>[0];
+        this.entriesByClass = new ConcurrentHashMap<>();
+
+        /* Server */
+        this.register(10, "server.started", HydraServerStartedEvent.class);
+        this.register(11, "server.updated", HydraServerUpdatedEvent.class);
+        this.register(12, "server.stopped", HydraServerStoppedEvent.class);
+
+        /* Proxy */
+        this.register(30, "proxy.started", HydraProxyStartedEvent.class);
+        this.register(31, "proxy.updated", HydraProxyUpdatedEvent.class);
+        this.register(32, "proxy.stopped", HydraProxyStoppedEvent.class);
+    }
+
+    /**
+     * Register an event with a given id.<br>
+     * The same id must be registered on all the applications sending or receiving the event.
+     *
+     * @param id The id of the event (between 0 and {@link #MAX_ID})
+     * @param name The name of the event (e.g. server.started). It's used to build the channel of the event.
+     * @param eventClass The class of the event
+     * @param <E> The type of the event
+     */
+    public synchronized <E extends HydraEvent> void register(int id, String name, Class<E> eventClass) {
+        if (id < 0 || id > MAX_ID) {
+            throw new HydraException("Invalid event id: " + id + "! It must be between 0 and " + MAX_ID + ".");
+        }
+
+        final Entry<?> registered = this.getEntry(id);
+
+        if (registered != null) {
+            throw new HydraException("Event id " + id + " is already used by " + registered.getEventClass().getName() + "!");
+        }
+
+        if (this.entriesByClass.containsKey(eventClass)) {
+            throw new HydraException(eventClass.getName() + " is already registered!");
+        }
+
+        for (Entry<?> other : this.entriesByClass.values()) {
+            if (other.getName().equals(name)) {
+                throw new HydraException("Event name '" + name + "' is already used by " + other.getEventClass().getName() + "!");
+            }
+        }
+
+        final Entry<E> entry = new Entry<>(id, name, eventClass);
+        final Entry<?>[] entries = Arrays.copyOf(this.entriesById, Math.max(this.entriesById.length, id + 1));
+
+        entries[id] = entry;
+
+        this.entriesByClass.put(eventClass, entry);
+        this.entriesById = entries;
+
+        if (this.registerListener != null) {
+            this.registerListener.accept(entry);
+        }
+    }
+
+    /**
+     * Set the action to perform each time an event is registered
+     *
+     * @param registerListener The action to perform
+     */
+    void onRegister(Consumer<Entry<?>> registerListener) {
+        this.registerListener = registerListener;
+    }
+
+    /**
+     * Set the resolver applied on an event when it's received, before passing it to the listeners
+     *
+     * @param eventClass The class of the event
+     * @param resolver The resolver to apply; or <code>null</code> to remove it
+     * @param <E> The type of the event
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends HydraEvent> void setResolver(Class<E> eventClass, IHydraEventResolver<E> resolver) {
+        final Entry<E> entry = (Entry<E>) this.getEntry(eventClass);
+
+        if (entry == null) {
+            throw new HydraException(eventClass.getName() + " is not registered!");
+        }
+
+        entry.resolver = resolver;
+    }
+
+    /**
+     * Get a registered event by its id
+     *
+     * @param id The id of the event
+     * @return The {@link Entry} of the event; or <code>null</code> if no event is registered with this id
+     */
+    public Entry<?> getEntry(int id) {
+        final Entry<?>[] entries = this.entriesById;
+
+        return id >= 0 && id < entries.length ? entries[id] : null;
+    }
+
+    /**
+     * Get a registered event by its class
+     *
+     * @param eventClass The class of the event
+     * @return The {@link Entry} of the event; or <code>null</code> if the class is not registered
+     */
+    public Entry<?> getEntry(Class<?> eventClass) {
+        return this.entriesByClass.get(eventClass);
+    }
+
+    /**
+     * Get all the registered events
+     *
+     * @return A list of {@link Entry}
+     */
+    public List<Entry<?>> getEntries() {
+        return new ArrayList<>(this.entriesByClass.values());
+    }
+
+    /**
+     * Represents an event registered in the {@link HydraEventRegistry}
+     *
+     * @param <E> The type of the event
+     */
+    public static class Entry<E extends HydraEvent> {
+
+        /** The id of the event */
+        private final int id;
+        /** The name of the event */
+        private final String name;
+        /** The class of the event */
+        private final Class<E> eventClass;
+        /** The resolver applied on the event when it's received */
+        private volatile IHydraEventResolver<E> resolver;
+
+        /**
+         * Constructor of {@link Entry}
+         *
+         * @param id The id of the event
+         * @param name The name of the event
+         * @param eventClass The class of the event
+         */
+        public Entry(int id, String name, Class<E> eventClass) {
+            this.id = id;
+            this.name = name;
+            this.eventClass = eventClass;
+        }
+
+        /**
+         * Get the id of the event
+         *
+         * @return An id
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        /**
+         * Get the name of the event
+         *
+         * @return A name
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Get the channel the event is published on
+         *
+         * @return A channel name. E.g. HydraEvents:server.updated
+         */
+        public String getChannel() {
+            return HydraChannel.EVENTS.getName() + ":" + this.name;
+        }
+
+        /**
+         * Get the class of the event
+         *
+         * @return A {@link Class}
+         */
+        public Class<E> getEventClass() {
+            return this.eventClass;
+        }
+
+        /**
+         * Resolve a received event with the resolver of the entry
+         *
+         * @param event The received event (must be an instance of the entry class)
+         * @return The event to pass to the listeners; or <code>null</code> to drop it
+         */
+        HydraEvent resolve(HydraEvent event) {
+            final IHydraEventResolver<E> resolver = this.resolver;
+
+            return resolver == null ? event : resolver.resolve(this.eventClass.cast(event));
+        }
+
+    }
+
+}
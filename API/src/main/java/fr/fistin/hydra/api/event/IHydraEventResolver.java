@@ -0,0 +1,19 @@
+package fr.fistin.hydra.api.event;
+
+/**
+ * Resolves a received event before it's passed to the listeners (e.g. to rebuild an object from a delta).
+ *
+ * @param <E> The type of the resolved event
+ */
+@FunctionalInterface
+public interface IHydraEventResolver<E extends HydraEvent> {
+
+    /**
+     * Resolve a received event
+     *
+     * @param event The received event
+     * @return The event to pass to the listeners; or <code>null</code> to drop it
+     */
+    E resolve(E event);
+
+}
@@ -0,0 +1,21 @@
+package fr.fistin.hydra.api.event;
+
+import java.util.List;
+
+/**
+ * Represents an event published on a hierarchy of topics.<br>
+ * E.g. an event with the topic [bedwars, solo] is only published on HydraEvents:&lt;name&gt;:bedwars:solo.
+ * Listeners can use a {@link HydraEventFilter} to only receive some topics: they subscribe to the channel of the filter
+ * and to the pattern of the more specific channels.
+ */
+public interface IHydraTopicEvent {
+
+    /**
+     * Get the topic of the event, from the most general part to the most specific one.<br>
+     * The topic stops at the first <code>null</code> part.
+     *
+     * @return A list of topic parts
+     */
+    List<String> getTopic();
+
+}
@@ -0,0 +1,62 @@
+package fr.fistin.hydra.api.player;
+
+import java.util.UUID;
+
+/**
+ * Represents where a player is connected on the network.
+ */
+public class HydraPlayerLocation {
+
+    /** The player */
+    private final UUID player;
+    /** The server the player is on */
+    private final String server;
+    /** The proxy the player is connected to */
+    private final String proxy;
+
+    /**
+     * Constructor of a {@link HydraPlayerLocation}
+     *
+     * @param player The player
+     * @param server The server the player is on
+     * @param proxy The proxy the player is connected to
+     */
+    public HydraPlayerLocation(UUID player, String server, String proxy) {
+        this.player = player;
+        this.server = server;
+        this.proxy = proxy;
+    }
+
+    /**
+     * Get the player
+     *
+     * @return A player {@link UUID}
+     */
+    public UUID getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Get the server the player is on
+     *
+     * @return A server name; or <code>null</code> if the player is not on a server
+     */
+    public String getServer() {
+        return this.server;
+    }
+
+    /**
+     * Get the proxy the player is connected to
+     *
+     * @return A proxy name; or <code>null</code> if the player is not connected to a proxy
+     */
+    public String getProxy() {
+        return this.proxy;
+    }
+
+    @Override
+    public String toString() {
+        return this.player + " (server: " + this.server + ", proxy: " + this.proxy + ")";
+    }
+
+}
@@ -0,0 +1,129 @@
+package fr.fistin.hydra.api.player;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.HydraException;
+import fr.fistin.hydra.api.player.packet.HydraPlayerJoinPacket;
+import fr.fistin.hydra.api.player.packet.HydraPlayerLeavePacket;
+import fr.fistin.hydra.api.protocol.HydraChannel;
+import fr.fistin.hydra.api.protocol.packet.HydraPacket;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The service used to know where the players are on the network.<br>
+ * Hydra keeps a hash with the location of each player, and a set with the players of each server and proxy.
+ */
+public class HydraPlayersService {
+
+    /** The players Redis hash. The location of a player is stored in hydra:players:&lt;uuid&gt; */
+    public static final String HASH = HydraAPI.HYDRA_HASH + "players:";
+    /** The Redis hash of the players on each server (hydra:players:servers:&lt;name&gt;) */
+    public static final String SERVERS_HASH = HASH + "servers:";
+    /** The Redis hash of the players on each proxy (hydra:players:proxies:&lt;name&gt;) */
+    public static final String PROXIES_HASH = HASH + "proxies:";
+
+    /** The field storing the server of a player */
+    public static final String SERVER_FIELD = "server";
+    /** The field storing the proxy of a player */
+    public static final String PROXY_FIELD = "proxy";
+
+    /** The {@link HydraAPI} instance */
+    private final HydraAPI hydraAPI;
+
+    /**
+     * Constructor of a {@link HydraPlayersService}
+     *
+     * @param hydraAPI The {@link HydraAPI} instance
+     */
+    public HydraPlayersService(HydraAPI hydraAPI) {
+        this.hydraAPI = hydraAPI;
+    }
+
+    /**
+     * Tell Hydra that a player joined the current server or proxy.<br>
+     * Only servers and proxies can perform this action.
+     *
+     * @param player The player that joined
+     */
+    public void playerJoined(UUID player) {
+        this.sendPacket(new HydraPlayerJoinPacket(player));
+    }
+
+    /**
+     * Tell Hydra that a player left the current server or proxy.<br>
+     * Only servers and proxies can perform this action.
+     *
+     * @param player The player that left
+     */
+    public void playerLeft(UUID player) {
+        this.sendPacket(new HydraPlayerLeavePacket(player));
+    }
+
+    /**
+     * Send a player packet on the channel of the current application
+     *
+     * @param packet The packet to send
+     */
+    private void sendPacket(HydraPacket packet) {
+        final HydraAPI.Type type = this.hydraAPI.getType();
+
+        if (type != HydraAPI.Type.SERVER && type != HydraAPI.Type.PROXY) {
+            throw new HydraException("Only servers and proxies can tell that a player joined or left them!");
+        }
+
+        this.hydraAPI.getConnection().sendPacket(type == HydraAPI.Type.SERVER ? HydraChannel.SERVERS : HydraChannel.PROXIES, packet).exec();
+    }
+
+    /**
+     * Find where a player is connected on the network
+     *
+     * @param player The player to find
+     * @return The {@link HydraPlayerLocation} of the player; or <code>null</code> if the player is not connected
+     */
+    public HydraPlayerLocation findPlayer(UUID player) {
+        return this.hydraAPI.getRedis().get(jedis -> {
+            final Map<String, String> location = jedis.hgetAll(HASH + player);
+
+            if (location == null || location.isEmpty()) {
+                return null;
+            }
+            return new HydraPlayerLocation(player, location.get(SERVER_FIELD), location.get(PROXY_FIELD));
+        });
+    }
+
+    /**
+     * Get the players that are on a server
+     *
+     * @param server The name of the server
+     * @return A set of player {@link UUID}
+     */
+    public Set<UUID> getPlayersOnServer(String server) {
+        return this.getPlayers(SERVERS_HASH + server);
+    }
+
+    /**
+     * Get the players that are connected to a proxy
+     *
+     * @param proxy The name of the proxy
+     * @return A set of player {@link UUID}
+     */
+    public Set<UUID> getPlayersOnProxy(String proxy) {
+        return this.getPlayers(PROXIES_HASH + proxy);
+    }
+
+    /**
+     * Get the players stored in a Redis set
+     *
+     * @param key The key of the set
+     * @return A set of player {@link UUID}
+     */
+    private Set<UUID> getPlayers(String key) {
+        return this.hydraAPI.getRedis().get(jedis -> jedis.smembers(key).stream()
+                .map(UUID::fromString)
+                .collect(Collectors.toSet()));
+    }
+
+}
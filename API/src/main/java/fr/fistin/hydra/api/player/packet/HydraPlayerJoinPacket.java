@@ -0,0 +1,33 @@
+package fr.fistin.hydra.api.player.packet;
+
+import fr.fistin.hydra.api.protocol.packet.HydraPacket;
+
+import java.util.UUID;
+
+/**
+ * Packet sent by a server or a proxy to Hydra when a player joined it.
+ */
+public class HydraPlayerJoinPacket extends HydraPacket {
+
+    /** The player that joined */
+    private final UUID player;
+
+    /**
+     * Constructor of a {@link HydraPlayerJoinPacket}
+     *
+     * @param player The player that joined
+     */
+    public HydraPlayerJoinPacket(UUID player) {
+        this.player = player;
+    }
+
+    /**
+     * Get the player that joined
+     *
+     * @return A player {@link UUID}
+     */
+    public UUID getPlayer() {
+        return this.player;
+    }
+
+}
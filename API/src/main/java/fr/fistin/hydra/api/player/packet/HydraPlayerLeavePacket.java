@@ -0,0 +1,33 @@
+package fr.fistin.hydra.api.player.packet;
+
+import fr.fistin.hydra.api.protocol.packet.HydraPacket;
+
+import java.util.UUID;
+
+/**
+ * Packet sent by a server or a proxy to Hydra when a player left it.
+ */
+public class HydraPlayerLeavePacket extends HydraPacket {
+
+    /** The player that left */
+    private final UUID player;
+
+    /**
+     * Constructor of a {@link HydraPlayerLeavePacket}
+     *
+     * @param player The player that left
+     */
+    public HydraPlayerLeavePacket(UUID player) {
+        this.player = player;
+    }
+
+    /**
+     * Get the player that left
+     *
+     * @return A player {@link UUID}
+     */
+    public UUID getPlayer() {
+        return this.player;
+    }
+
+}
@@ -15,7 +15,7 @@ public enum HydraChannel {
     SERVERS("servers"),
     /** Channel used by proxies to interact with Hydra */
     PROXIES("proxies"),
-    /** Channel used to send events */
+    /** Base channel of events. Each event is sent on its own sub-channel (e.g. HydraEvents:server.updated) */
     EVENTS("events");
 
     private final String name;
@@ -1,10 +1,16 @@
 package fr.fistin.hydra.api.protocol;
 
+import fr.fistin.hydra.api.player.packet.HydraPlayerJoinPacket;
+import fr.fistin.hydra.api.player.packet.HydraPlayerLeavePacket;
 import fr.fistin.hydra.api.protocol.heartbeat.HydraHeartbeatPacket;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadQueryPacket;
 import fr.fistin.hydra.api.protocol.packet.HydraPacket;
 import fr.fistin.hydra.api.protocol.response.HydraResponsePacket;
+import fr.fistin.hydra.api.proxy.packet.HydraPatchProxyPacket;
 import fr.fistin.hydra.api.proxy.packet.HydraStartProxyPacket;
 import fr.fistin.hydra.api.proxy.packet.HydraStopProxyPacket;
+import fr.fistin.hydra.api.proxy.packet.HydraUpdateProxyPacket;
+import fr.fistin.hydra.api.server.packet.HydraPatchServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraStartServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraStopServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraUpdateServerPacket;
@@ -19,15 +25,23 @@ public enum HydraProtocol {
     /** Basics */
     RESPONSE(0, HydraResponsePacket.class),
     HEARTBEAT(1, HydraHeartbeatPacket.class),
+    LOAD_QUERY(2, HydraLoadQueryPacket.class),
 
     /** Server */
     START_SERVER(10, HydraStartServerPacket.class),
     STOP_SERVER(11, HydraStopServerPacket.class),
     UPDATE_SERVER(12, HydraUpdateServerPacket.class),
+    PATCH_SERVER(13, HydraPatchServerPacket.class),
 
     /** Proxy */
     START_PROXY(30, HydraStartProxyPacket.class),
     STOP_PROXY(31, HydraStopProxyPacket.class),
+    UPDATE_PROXY(32, HydraUpdateProxyPacket.class),
+    PATCH_PROXY(33, HydraPatchProxyPacket.class),
+
+    /** Player */
+    PLAYER_JOIN(50, HydraPlayerJoinPacket.class),
+    PLAYER_LEAVE(51, HydraPlayerLeavePacket.class),
 
     ;
 
@@ -0,0 +1,149 @@
+package fr.fistin.hydra.api.protocol.data;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents the field-level difference between two JSON representations of the same object.<br>
+ * Array fields are considered as sets (e.g. players): only the added and removed elements are kept.
+ */
+public class HydraDelta {
+
+    /** The fields that changed, with their new value */
+    private final Map<String, JsonElement> changed = new HashMap<>();
+    /** The fields that were removed */
+    private final Set<String> removed = new HashSet<>();
+    /** The elements added to array fields */
+    private final Map<String, JsonArray> added = new HashMap<>();
+    /** The elements removed from array fields */
+    private final Map<String, JsonArray> pulled = new HashMap<>();
+
+    /**
+     * Compute the delta between two JSON representations of an object
+     *
+     * @param previous The previous representation
+     * @param current The current representation
+     * @return The computed {@link HydraDelta}
+     */
+    public static HydraDelta compute(JsonObject previous, JsonObject current) {
+        final HydraDelta delta = new HydraDelta();
+
+        for (Map.Entry<String, JsonElement> entry : current.entrySet()) {
+            final String field = entry.getKey();
+            final JsonElement value = entry.getValue();
+            final JsonElement previousValue = previous.get(field);
+
+            if (value.equals(previousValue)) {
+                continue;
+            }
+
+            if (value.isJsonArray() && previousValue != null && previousValue.isJsonArray()) {
+                final Set<JsonElement> elements = toSet(value.getAsJsonArray());
+                final Set<JsonElement> previousElements = toSet(previousValue.getAsJsonArray());
+                final JsonArray added = new JsonArray();
+                final JsonArray pulled = new JsonArray();
+
+                for (JsonElement element : elements) {
+                    if (!previousElements.contains(element)) {
+                        added.add(element);
+                    }
+                }
+
+                for (JsonElement element : previousElements) {
+                    if (!elements.contains(element)) {
+                        pulled.add(element);
+                    }
+                }
+
+                if (added.size() > 0) {
+                    delta.added.put(field, added);
+                }
+                if (pulled.size() > 0) {
+                    delta.pulled.put(field, pulled);
+                }
+            } else {
+                delta.changed.put(field, value);
+            }
+        }
+
+        for (String field : previous.keySet()) {
+            if (!current.has(field)) {
+                delta.removed.add(field);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Apply the delta on a JSON representation.<br>
+     * The given object is not modified.
+     *
+     * @param base The representation to apply the delta on
+     * @return The new representation
+     */
+    public JsonObject apply(JsonObject base) {
+        final JsonObject result = base.deepCopy();
+
+        for (String field : this.removed) {
+            result.remove(field);
+        }
+
+        for (Map.Entry<String, JsonElement> entry : this.changed.entrySet()) {
+            result.add(entry.getKey(), entry.getValue().deepCopy());
+        }
+
+        final Set<String> arrayFields = new HashSet<>(this.added.keySet());
+
+        arrayFields.addAll(this.pulled.keySet());
+
+        for (String field : arrayFields) {
+            final JsonElement value = result.get(field);
+            final Set<JsonElement> elements = value != null && value.isJsonArray() ? toSet(value.getAsJsonArray()) : new LinkedHashSet<>();
+
+            if (this.pulled.containsKey(field)) {
+                elements.removeAll(toSet(this.pulled.get(field)));
+            }
+            if (this.added.containsKey(field)) {
+                elements.addAll(toSet(this.added.get(field)));
+            }
+
+            final JsonArray array = new JsonArray();
+
+            elements.forEach(array::add);
+
+            result.add(field, array);
+        }
+        return result;
+    }
+
+    /**
+     * Check whether the delta contains at least one change
+     *
+     * @return <code>true</code> if nothing changed
+     */
+    public boolean isEmpty() {
+        return this.changed.isEmpty() && this.removed.isEmpty() && this.added.isEmpty() && this.pulled.isEmpty();
+    }
+
+    /**
+     * Convert a JSON array to an ordered set
+     *
+     * @param array The array to convert
+     * @return A set of {@link JsonElement}
+     */
+    private static Set<JsonElement> toSet(JsonArray array) {
+        final Set<JsonElement> elements = new LinkedHashSet<>();
+
+        array.forEach(elements::add);
+
+        return elements;
+    }
+
+}
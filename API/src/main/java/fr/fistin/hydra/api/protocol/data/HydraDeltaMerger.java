@@ -0,0 +1,171 @@
+package fr.fistin.hydra.api.protocol.data;
+
+import com.google.gson.JsonObject;
+import fr.fistin.hydra.api.HydraAPI;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Rebuilds objects from the versioned deltas received for them.<br>
+ * If a version is missed, the full object is loaded again with the fallback loader, on the given executor:
+ * the thread receiving the deltas never waits for Redis. The reloaded object is then passed to the reload listener (e.g. to dispatch it),
+ * it replaces the deltas received while it was loaded.
+ *
+ * @param <T> The type of the merged objects
+ */
+public class HydraDeltaMerger<T> {
+
+    /** The last known state of each object */
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    /** The class of the merged objects */
+    private final Class<T> type;
+    /** The function used to load the full object when a version is missing */
+    private final Function<String, T> loader;
+    /** The executor running the loader */
+    private final Executor executor;
+    /** The function called with each reloaded object and its version, on the executor */
+    private final BiConsumer<T, Long> reloadListener;
+
+    /**
+     * Constructor of {@link HydraDeltaMerger}
+     *
+     * @param type The class of the merged objects
+     * @param loader The function used to load the full object (from its name) when a version is missing
+     * @param executor The executor running the loader
+     * @param reloadListener The function called with each reloaded object and its version (e.g. to dispatch it to the listeners)
+     */
+    public HydraDeltaMerger(Class<T> type, Function<String, T> loader, Executor executor, BiConsumer<T, Long> reloadListener) {
+        this.type = type;
+        this.loader = loader;
+        this.executor = executor;
+        this.reloadListener = reloadListener;
+    }
+
+    /**
+     * Merge a received version of an object
+     *
+     * @param name The name of the object
+     * @param version The received version
+     * @param full The full object; or <code>null</code> if only a delta was received
+     * @param delta The delta against the previous version; or <code>null</code> if the full object was received
+     * @return The merged object; or <code>null</code> if a version is missing (the object is then reloaded and passed to the reload listener)
+     */
+    public T merge(String name, long version, T full, HydraDelta delta) {
+        if (full != null) {
+            this.states.put(name, new State(version, HydraAPI.GSON.toJsonTree(full).getAsJsonObject()));
+            return full;
+        }
+
+        final State state = this.states.get(name);
+
+        if (state != null && state.json != null && state.version == version - 1) {
+            final JsonObject merged = delta.apply(state.json);
+
+            this.states.put(name, new State(version, merged));
+
+            return HydraAPI.GSON.fromJson(merged, this.type);
+        }
+
+        // A version is missing (or nothing is known about the object): drop the delta and load the full object
+        final boolean[] load = new boolean[1];
+
+        this.states.compute(name, (key, current) -> {
+            // Already being loaded: only remember the last received version
+            if (current != null && current.json == null) {
+                return new State(Math.max(current.version, version), null);
+            }
+
+            load[0] = true;
+
+            return new State(version, null);
+        });
+
+        if (load[0]) {
+            this.executor.execute(() -> this.reload(name));
+        }
+        return null;
+    }
+
+    /**
+     * Load the full object after a missing version
+     *
+     * @param name The name of the object
+     */
+    private void reload(String name) {
+        final State loading = this.states.get(name);
+
+        if (loading == null || loading.json != null) {
+            return;
+        }
+
+        T loaded;
+
+        try {
+            loaded = this.loader.apply(name);
+        } catch (Exception e) {
+            HydraAPI.log(Level.SEVERE, "Couldn't load '" + name + "' after missing a delta! Error: " + e.getMessage());
+            loaded = null;
+        }
+
+        final T object = loaded;
+        final State[] reloaded = new State[1];
+        final boolean[] outdated = new boolean[1];
+
+        // The object may have been received entirely or forgotten in the meantime
+        this.states.computeIfPresent(name, (key, current) -> {
+            if (current.json != null) {
+                return current;
+            }
+
+            // A newer version was received during the load: it may not be in the loaded object
+            if (current.version != loading.version) {
+                outdated[0] = true;
+                return current;
+            }
+            return object == null ? null : (reloaded[0] = new State(current.version, HydraAPI.GSON.toJsonTree(object).getAsJsonObject()));
+        });
+
+        if (outdated[0]) {
+            this.executor.execute(() -> this.reload(name));
+        } else if (reloaded[0] != null) {
+            this.reloadListener.accept(object, reloaded[0].version);
+        }
+    }
+
+    /**
+     * Forget the known state of an object (e.g. when it's stopped)
+     *
+     * @param name The name of the object
+     */
+    public void forget(String name) {
+        this.states.remove(name);
+    }
+
+    /** The last known version of an object */
+    private static class State {
+
+        /** The version (the last received one while the object is loaded) */
+        private final long version;
+        /** The JSON representation of the object at this version; or <code>null</code> while the object is loaded */
+        private final JsonObject json;
+
+        /**
+         * Constructor of {@link State}
+         *
+         * @param version The version
+         * @param json The JSON representation of the object; or <code>null</code> while it's loaded
+         */
+        public State(long version, JsonObject json) {
+            this.version = version;
+            this.json = json;
+        }
+
+    }
+
+}
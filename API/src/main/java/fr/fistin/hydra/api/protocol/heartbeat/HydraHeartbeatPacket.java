@@ -7,4 +7,34 @@ import fr.fistin.hydra.api.protocol.packet.HydraPacket;
  * Created by AstFaster
  * on 24/11/2021 at 18:16
  */
-public class HydraHeartbeatPacket extends HydraPacket {}
+public class HydraHeartbeatPacket extends HydraPacket {
+
+    /** The load of the sender (<code>null</code> if it doesn't send it) */
+    private final HydraLoadMetrics metrics;
+
+    /**
+     * Constructor of {@link HydraHeartbeatPacket}
+     *
+     * @param metrics The load of the sender; or <code>null</code>
+     */
+    public HydraHeartbeatPacket(HydraLoadMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Constructor of {@link HydraHeartbeatPacket}
+     */
+    public HydraHeartbeatPacket() {
+        this(null);
+    }
+
+    /**
+     * Get the load of the sender
+     *
+     * @return The {@link HydraLoadMetrics}; or <code>null</code> if the sender doesn't send it
+     */
+    public HydraLoadMetrics getMetrics() {
+        return this.metrics;
+    }
+
+}
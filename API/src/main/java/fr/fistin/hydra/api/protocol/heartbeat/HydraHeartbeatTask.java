@@ -4,6 +4,8 @@ import fr.fistin.hydra.api.HydraAPI;
 import fr.fistin.hydra.api.protocol.HydraChannel;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Created by AstFaster
@@ -33,11 +35,22 @@ public class HydraHeartbeatTask {
     }
 
     /**
-     * Send the heartbeat to Hydra
+     * Send the heartbeat to Hydra, with the load metrics if they are provided
      */
     private void heartbeat() {
-        this.hydraAPI.getConnection().sendPacket(this.hydraAPI.getType() == HydraAPI.Type.SERVER ? HydraChannel.SERVERS : HydraChannel.PROXIES, new HydraHeartbeatPacket()).exec();
-    }
+        final Supplier<HydraLoadMetrics> provider = this.hydraAPI.getLoadMetricsProvider();
+        HydraLoadMetrics metrics = null;
+
+        if (provider != null) {
+            try {
+                metrics = provider.get();
+            } catch (Exception e) {
+                // The heartbeat must be sent anyway
+                HydraAPI.log(Level.SEVERE, "Couldn't get the load metrics to send with the heartbeat! Error: " + e.getMessage());
+            }
+        }
 
+        this.hydraAPI.getConnection().sendPacket(this.hydraAPI.getType() == HydraAPI.Type.SERVER ? HydraChannel.SERVERS : HydraChannel.PROXIES, new HydraHeartbeatPacket(metrics)).exec();
+    }
 
 }
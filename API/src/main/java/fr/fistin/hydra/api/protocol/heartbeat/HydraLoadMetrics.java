@@ -0,0 +1,190 @@
+package fr.fistin.hydra.api.protocol.heartbeat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Represents the load of a server or a proxy, sent with its heartbeats.<br>
+ * All the metrics are optional: the ones that are not set are not sent.
+ */
+public class HydraLoadMetrics {
+
+    /** The time when Hydra received the metrics (in milliseconds) */
+    private Long time;
+    /** The ticks per second */
+    private Double tps;
+    /** The average duration of a tick (in milliseconds) */
+    private Double tickTime;
+    /** The used heap memory (in bytes) */
+    private Long heapUsed;
+    /** The maximum heap memory (in bytes) */
+    private Long heapMax;
+    /** The amount of connected players */
+    private Integer players;
+    /** The CPU usage of the process (between 0 and 1) */
+    private Double cpu;
+
+    /**
+     * Set the time when Hydra received the metrics
+     *
+     * @param time The time (in milliseconds)
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withTime(Long time) {
+        this.time = time;
+        return this;
+    }
+
+    /**
+     * Get the time when Hydra received the metrics
+     *
+     * @return A time (in milliseconds); or <code>null</code> if the metrics were not received by Hydra
+     */
+    public Long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Set the ticks per second
+     *
+     * @param tps The ticks per second
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withTps(Double tps) {
+        this.tps = tps;
+        return this;
+    }
+
+    /**
+     * Get the ticks per second
+     *
+     * @return The ticks per second; or <code>null</code> if it's not provided
+     */
+    public Double getTps() {
+        return this.tps;
+    }
+
+    /**
+     * Set the average duration of a tick
+     *
+     * @param tickTime The duration (in milliseconds)
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withTickTime(Double tickTime) {
+        this.tickTime = tickTime;
+        return this;
+    }
+
+    /**
+     * Get the average duration of a tick
+     *
+     * @return A duration (in milliseconds); or <code>null</code> if it's not provided
+     */
+    public Double getTickTime() {
+        return this.tickTime;
+    }
+
+    /**
+     * Set the used heap memory
+     *
+     * @param heapUsed The used memory (in bytes)
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withHeapUsed(Long heapUsed) {
+        this.heapUsed = heapUsed;
+        return this;
+    }
+
+    /**
+     * Get the used heap memory
+     *
+     * @return An amount of bytes; or <code>null</code> if it's not provided
+     */
+    public Long getHeapUsed() {
+        return this.heapUsed;
+    }
+
+    /**
+     * Set the maximum heap memory
+     *
+     * @param heapMax The maximum memory (in bytes)
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withHeapMax(Long heapMax) {
+        this.heapMax = heapMax;
+        return this;
+    }
+
+    /**
+     * Get the maximum heap memory
+     *
+     * @return An amount of bytes; or <code>null</code> if it's not provided
+     */
+    public Long getHeapMax() {
+        return this.heapMax;
+    }
+
+    /**
+     * Set the amount of connected players
+     *
+     * @param players The amount of players
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withPlayers(Integer players) {
+        this.players = players;
+        return this;
+    }
+
+    /**
+     * Get the amount of connected players
+     *
+     * @return An amount of players; or <code>null</code> if it's not provided
+     */
+    public Integer getPlayers() {
+        return this.players;
+    }
+
+    /**
+     * Set the CPU usage of the process
+     *
+     * @param cpu The CPU usage (between 0 and 1)
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withCpu(Double cpu) {
+        this.cpu = cpu;
+        return this;
+    }
+
+    /**
+     * Get the CPU usage of the process
+     *
+     * @return A CPU usage (between 0 and 1); or <code>null</code> if it's not provided
+     */
+    public Double getCpu() {
+        return this.cpu;
+    }
+
+    /**
+     * Set the heap memory and the CPU usage with the values of the current JVM
+     *
+     * @return This {@link HydraLoadMetrics} instance
+     */
+    public HydraLoadMetrics withJvmMetrics() {
+        final Runtime runtime = Runtime.getRuntime();
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+        this.heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        this.heapMax = runtime.maxMemory();
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            final double cpu = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad();
+
+            // A negative value means that the CPU usage is not available
+            if (cpu >= 0) {
+                this.cpu = cpu;
+            }
+        }
+        return this;
+    }
+
+}
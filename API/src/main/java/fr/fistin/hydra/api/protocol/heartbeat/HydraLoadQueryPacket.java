@@ -0,0 +1,31 @@
+package fr.fistin.hydra.api.protocol.heartbeat;
+
+import fr.fistin.hydra.api.protocol.packet.HydraPacket;
+
+/**
+ * Packet used to get the last load metrics of a server or a proxy by querying Hydra.
+ */
+public class HydraLoadQueryPacket extends HydraPacket {
+
+    /** The name of the server or proxy */
+    private final String name;
+
+    /**
+     * Constructor of a {@link HydraLoadQueryPacket}
+     *
+     * @param name The name of the server or proxy
+     */
+    public HydraLoadQueryPacket(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the server or proxy
+     *
+     * @return A name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+}
@@ -158,7 +158,7 @@ public class HydraPacketRequest {
             if (packet instanceof HydraResponsePacket) {
                 final HydraResponsePacket responsePacket = (HydraResponsePacket) packet;
 
-                if (responsePacket.getRespondedPacketUniqueId().equals(packet.getUniqueId())) {
+                if (responsePacket.getRespondedPacketUniqueId().equals(HydraPacketRequest.this.packet.getUniqueId())) {
                     if (responseCallback != null) {
                         responseCallback.call(new HydraResponse(responsePacket.getResponse(), responsePacket.getMessage()));
                     }
@@ -2,16 +2,28 @@ package fr.fistin.hydra.api.proxy;
 
 import fr.fistin.hydra.api.HydraAPI;
 import fr.fistin.hydra.api.HydraException;
+import fr.fistin.hydra.api.event.HydraEventBus;
+import fr.fistin.hydra.api.event.HydraEventRegistry;
 import fr.fistin.hydra.api.protocol.HydraChannel;
+import fr.fistin.hydra.api.protocol.data.HydraDeltaMerger;
 import fr.fistin.hydra.api.protocol.response.HydraResponseCallback;
 import fr.fistin.hydra.api.protocol.response.HydraResponseType;
+import fr.fistin.hydra.api.proxy.event.HydraProxyStartedEvent;
+import fr.fistin.hydra.api.proxy.event.HydraProxyStoppedEvent;
+import fr.fistin.hydra.api.proxy.event.HydraProxyUpdatedEvent;
+import fr.fistin.hydra.api.proxy.packet.HydraPatchProxyPacket;
 import fr.fistin.hydra.api.proxy.packet.HydraStartProxyPacket;
 import fr.fistin.hydra.api.proxy.packet.HydraStopProxyPacket;
 import fr.fistin.hydra.api.proxy.packet.HydraUpdateProxyPacket;
+import fr.fistin.hydra.api.redis.HydraRedisCache;
+import fr.fistin.hydra.api.registry.HydraRegistry;
+import redis.clients.jedis.Pipeline;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Created by AstFaster
@@ -19,8 +31,15 @@ import java.util.function.Consumer;
  */
 public class HydraProxiesService {
 
-    /** The proxies Redis hash */
+    /** The proxies Redis hash. Each proxy is stored in hydra:proxies:&lt;name&gt; */
     public static final String HASH = HydraAPI.HYDRA_HASH + "proxies:";
+    /** The set of the names of all the proxies */
+    public static final String ALL_INDEX = HydraAPI.HYDRA_HASH + "index:proxies:all";
+
+    /** The merger used to rebuild the proxies from the deltas sent in {@link HydraProxyUpdatedEvent} */
+    private final HydraDeltaMerger<HydraProxy> merger;
+    /** The local registry of the proxies (<code>null</code> if it's not enabled) */
+    private volatile HydraRegistry<HydraProxy> registry;
 
     /** The {@link HydraAPI} instance */
     private final HydraAPI hydraAPI;
@@ -32,6 +51,100 @@ public class HydraProxiesService {
      */
     public HydraProxiesService(HydraAPI hydraAPI) {
         this.hydraAPI = hydraAPI;
+        this.merger = new HydraDeltaMerger<>(HydraProxy.class, this::fetchProxy, this.hydraAPI.getExecutorService(), this::onReload);
+
+        final HydraEventRegistry registry = this.hydraAPI.getEventBus().getRegistry();
+
+        registry.setResolver(HydraProxyUpdatedEvent.class, this::resolveUpdate);
+        registry.setResolver(HydraProxyStoppedEvent.class, event -> {
+            this.merger.forget(event.getProxy().getName());
+            return event;
+        });
+    }
+
+    /**
+     * Start the local registry of the proxies.<br>
+     * Once started, the proxies are read from memory: the registry is filled once from Redis, then kept up to date by the proxies events.
+     *
+     * @param reconciliationDelay The delay between two reconciliations of the registry with Redis (in seconds)
+     */
+    public void startRegistry(int reconciliationDelay) {
+        final HydraRegistry<HydraProxy> registry = new HydraRegistry<>(HydraProxy::getName, this::fetchProxies);
+        final HydraEventBus eventBus = this.hydraAPI.getEventBus();
+
+        eventBus.subscribe(HydraProxyStartedEvent.class, event -> registry.update(event.getProxy().getName(), 0, event.getProxy()));
+        eventBus.subscribe(HydraProxyUpdatedEvent.class, event -> registry.update(event.getName(), event.getVersion(), event.getProxy()));
+        eventBus.subscribe(HydraProxyStoppedEvent.class, event -> registry.remove(event.getProxy().getName()));
+
+        this.registry = registry;
+
+        // The first reconciliation fills the registry
+        this.hydraAPI.getExecutorService().scheduleAtFixedRate(() -> {
+            try {
+                registry.reconcile();
+            } catch (Exception e) {
+                HydraAPI.log(Level.SEVERE, "Couldn't reconcile the proxies registry! Error: " + e.getMessage());
+            }
+        }, 0, reconciliationDelay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the local registry of the proxies
+     *
+     * @return The {@link HydraRegistry} of the proxies; or <code>null</code> if it's not enabled
+     */
+    public HydraRegistry<HydraProxy> getRegistry() {
+        return this.registry;
+    }
+
+    /**
+     * Get the local registry of the proxies if it can be read
+     *
+     * @return The {@link HydraRegistry} of the proxies; or <code>null</code> if it's not enabled or not filled yet
+     */
+    private HydraRegistry<HydraProxy> getReadyRegistry() {
+        final HydraRegistry<HydraProxy> registry = this.registry;
+
+        return registry != null && registry.isReady() ? registry : null;
+    }
+
+    /**
+     * Called when a proxy was reloaded after missing some of its updates
+     *
+     * @param proxy The reloaded proxy
+     * @param version The version of the proxy
+     */
+    private void onReload(HydraProxy proxy, long version) {
+        if (proxy.getState() == HydraProxy.State.SHUTDOWN) {
+            this.merger.forget(proxy.getName());
+        }
+
+        // Replaces the updates dropped while the proxy was missing
+        this.hydraAPI.getEventBus().dispatch(new HydraProxyUpdatedEvent(proxy, version));
+    }
+
+    /**
+     * Rebuild the full proxy of a received {@link HydraProxyUpdatedEvent}
+     *
+     * @param event The received event
+     * @return The event with the full proxy; or <code>null</code> if the proxy couldn't be rebuilt
+     */
+    private HydraProxyUpdatedEvent resolveUpdate(HydraProxyUpdatedEvent event) {
+        // Sent by an older Hydra: only the full proxy, without its name and version
+        if (event.getName() == null) {
+            return event.getProxy() == null ? null : new HydraProxyUpdatedEvent(event.getProxy());
+        }
+
+        final HydraProxy proxy = this.merger.merge(event.getName(), event.getVersion(), event.getProxy(), event.getDelta());
+
+        if (proxy == null) {
+            return null;
+        }
+
+        if (proxy.getState() == HydraProxy.State.SHUTDOWN) {
+            this.merger.forget(proxy.getName());
+        }
+        return event.getDelta() == null ? event : new HydraProxyUpdatedEvent(proxy, event.getVersion());
     }
 
     /**
@@ -65,6 +178,7 @@ public class HydraProxiesService {
     /**
      * Update a proxy in cache by asking Hydra.<br>
      * Only the concerned proxy can perform this action.
+     * The players of the proxy are ignored: use {@link fr.fistin.hydra.api.player.HydraPlayersService} to tell when they join or leave.
      *
      * @param proxy The proxy to update
      */
@@ -76,6 +190,21 @@ public class HydraProxiesService {
         this.hydraAPI.getConnection().sendPacket(HydraChannel.PROXIES, new HydraUpdateProxyPacket(proxy)).exec();
     }
 
+    /**
+     * Only update some information of a proxy in cache by asking Hydra.<br>
+     * It's lighter than sending the whole proxy with {@link #updateProxy(HydraProxy)}.
+     * Only the concerned proxy can perform this action.
+     *
+     * @param patch The information to update
+     */
+    public void patchProxy(HydraPatchProxyPacket patch) {
+        if (!this.hydraAPI.getApplication().equals(patch.getName())) {
+            throw new HydraException("Proxies can only be updated by themself or Hydra!");
+        }
+
+        this.hydraAPI.getConnection().sendPacket(HydraChannel.PROXIES, patch).exec();
+    }
+
     /**
      * Stop a running proxy by querying Hydra
      *
@@ -98,34 +227,85 @@ public class HydraProxiesService {
     }
 
     /**
-     * Get a proxy from the Redis cache.
+     * Get a proxy from the Redis cache (or from the local registry or the client-side cache if they are enabled).
      *
      * @param name The name of the proxy to get
      * @return The found {@link HydraProxy}; or <code>null</code> if nothing was found
      */
     public HydraProxy getProxy(String name) {
+        final HydraRegistry<HydraProxy> registry = this.getReadyRegistry();
+
+        if (registry != null) {
+            return registry.get(name);
+        }
+
+        final HydraRedisCache cache = this.hydraAPI.getRedisCache();
+
+        if (cache != null) {
+            return cache.get(getKey(name), HydraProxyRecord.getKeys(name), () -> this.fetchProxy(name));
+        }
+        return this.fetchProxy(name);
+    }
+
+    /**
+     * Read a proxy from Redis
+     *
+     * @param name The name of the proxy to read
+     * @return The found {@link HydraProxy}; or <code>null</code> if nothing was found
+     */
+    private HydraProxy fetchProxy(String name) {
         return this.hydraAPI.getRedis().get(jedis -> {
-            final String key = new ArrayList<>(jedis.keys(HASH + "*:" + name)).get(0);
-            final String json = jedis.get(key);
+            final Pipeline pipeline = jedis.pipelined();
+            final Supplier<HydraProxy> proxy = HydraProxyRecord.read(pipeline, name);
 
-            return json == null ? null : HydraAPI.GSON.fromJson(json, HydraProxy.class);
+            pipeline.sync();
+
+            return proxy.get();
         });
     }
 
     /**
-     * Get all proxies from Redis cache.
+     * Get the state of a proxy from the Redis cache, without reading the whole proxy.
      *
-     * @return A list of {@link HydraProxy}
+     * @param name The name of the proxy
+     * @return A {@link HydraProxy.State}; or <code>null</code> if the proxy doesn't exist
      */
-    public List<HydraProxy> getProxies() {
+    public HydraProxy.State getProxyState(String name) {
         return this.hydraAPI.getRedis().get(jedis -> {
-            final List<HydraProxy> proxies = new ArrayList<>();
+            final String state = jedis.hget(getKey(name), HydraProxyRecord.STATE);
 
-            for (String key : jedis.keys(HASH + "*")) {
-                proxies.add(HydraAPI.GSON.fromJson(jedis.get(key), HydraProxy.class));
-            }
-            return proxies;
+            return state == null ? null : HydraProxy.State.valueOf(state);
         });
     }
+
+    /**
+     * Get all proxies from Redis cache (or from the local registry if it's enabled).
+     *
+     * @return A list of {@link HydraProxy}
+     */
+    public List<HydraProxy> getProxies() {
+        final HydraRegistry<HydraProxy> registry = this.getReadyRegistry();
+
+        return registry != null ? registry.getAll() : this.fetchProxies();
+    }
+
+    /**
+     * Read all the proxies from Redis
+     *
+     * @return A list of {@link HydraProxy}
+     */
+    private List<HydraProxy> fetchProxies() {
+        return this.hydraAPI.getRedis().get(jedis -> this.hydraAPI.getRedisFetcher().fetch(jedis, jedis.smembers(ALL_INDEX), HydraProxyRecord::read));
+    }
+
+    /**
+     * Get the Redis key of a proxy
+     *
+     * @param name The name of the proxy
+     * @return A Redis key
+     */
+    public static String getKey(String name) {
+        return HASH + name;
+    }
     
 }
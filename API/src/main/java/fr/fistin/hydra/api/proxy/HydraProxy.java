@@ -36,7 +36,7 @@ public class HydraProxy {
     private final int port;
 
     /** The last heartbeat of the proxy */
-    private long lastHeartbeat;
+    private long lastHeartbeat = -1;
 
     /**
      * Full constructor of a {@link HydraProxy}
@@ -167,6 +167,15 @@ public class HydraProxy {
         return this.lastHeartbeat;
     }
 
+    /**
+     * Set the last heartbeat of the proxy
+     *
+     * @param lastHeartbeat A heartbeat timestamp (in milliseconds); or -1 if the proxy never sent a heartbeat
+     */
+    public void setLastHeartbeat(long lastHeartbeat) {
+        this.lastHeartbeat = lastHeartbeat;
+    }
+
     /**
      * The proxy just sent a heartbeat.
      *
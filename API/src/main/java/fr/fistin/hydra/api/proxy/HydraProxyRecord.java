@@ -0,0 +1,148 @@
+package fr.fistin.hydra.api.proxy;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import fr.fistin.hydra.api.protocol.data.HydraData;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.commands.PipelineCommands;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Represents the way a {@link HydraProxy} is stored in Redis.<br>
+ * The scalar fields are stored in the hash hydra:proxies:&lt;name&gt;, so they can be read or updated one by one.
+ * The data is stored in its own key, and the players are the set maintained by the {@link HydraPlayersService}.
+ */
+public class HydraProxyRecord {
+
+    /** The Redis hash of the proxies data (hydra:proxies-data:&lt;name&gt;) */
+    public static final String DATA_HASH = HydraAPI.HYDRA_HASH + "proxies-data:";
+
+    /** The fields of the proxy hash */
+    public static final String NAME = "name";
+    public static final String STARTED_TIME = "startedTime";
+    public static final String STATE = "state";
+    public static final String PORT = "port";
+    public static final String LAST_HEARTBEAT = "lastHeartbeat";
+
+    private HydraProxyRecord() {}
+
+    /**
+     * Get the fields of the hash storing a proxy.<br>
+     * The fields without value are not included.
+     *
+     * @param proxy The proxy
+     * @return The fields of the proxy, by field name
+     */
+    public static Map<String, String> toFields(HydraProxy proxy) {
+        final Map<String, String> fields = new HashMap<>();
+
+        fields.put(NAME, proxy.getName());
+        fields.put(STARTED_TIME, String.valueOf(proxy.getStartedTime()));
+        fields.put(PORT, String.valueOf(proxy.getPort()));
+        fields.put(LAST_HEARTBEAT, String.valueOf(proxy.getLastHeartbeat()));
+
+        if (proxy.getState() != null) {
+            fields.put(STATE, proxy.getState().name());
+        }
+        return fields;
+    }
+
+    /**
+     * Write a proxy in Redis (except its players, maintained by Hydra when they join or leave).<br>
+     * Should be used in a transaction to never expose a partially written proxy.
+     *
+     * @param pipeline The pipeline or transaction to write the proxy with
+     * @param proxy The proxy to write
+     */
+    public static void write(PipelineCommands pipeline, HydraProxy proxy) {
+        final String name = proxy.getName();
+
+        pipeline.hset(HydraProxiesService.getKey(name), toFields(proxy));
+        pipeline.set(DATA_HASH + name, HydraAPI.GSON.toJson(proxy.getData()));
+    }
+
+    /**
+     * Delete a proxy from Redis (except its players)
+     *
+     * @param pipeline The pipeline or transaction to delete the proxy with
+     * @param name The name of the proxy
+     */
+    public static void delete(PipelineCommands pipeline, String name) {
+        pipeline.del(HydraProxiesService.getKey(name), DATA_HASH + name);
+    }
+
+    /**
+     * Get all the Redis keys a proxy is stored in
+     *
+     * @param name The name of the proxy
+     * @return A list of Redis keys
+     */
+    public static List<String> getKeys(String name) {
+        return Arrays.asList(HydraProxiesService.getKey(name), DATA_HASH + name, HydraPlayersService.PROXIES_HASH + name);
+    }
+
+    /**
+     * Get the prefixes of all the Redis keys the proxys are stored in
+     *
+     * @return A list of key prefixes
+     */
+    public static List<String> getKeyPrefixes() {
+        return Arrays.asList(HydraProxiesService.HASH, DATA_HASH, HydraPlayersService.PROXIES_HASH);
+    }
+
+    /**
+     * Queue the read of a proxy in a pipeline
+     *
+     * @param pipeline The pipeline to read the proxy with
+     * @param name The name of the proxy
+     * @return A supplier giving the read proxy once the pipeline is synced (or <code>null</code> if the proxy doesn't exist)
+     */
+    public static Supplier<HydraProxy> read(PipelineCommands pipeline, String name) {
+        final Response<Map<String, String>> fields = pipeline.hgetAll(HydraProxiesService.getKey(name));
+        final Response<String> data = pipeline.get(DATA_HASH + name);
+        final Response<Set<String>> players = pipeline.smembers(HydraPlayersService.PROXIES_HASH + name);
+
+        return () -> parse(fields.get(), data.get(), players.get());
+    }
+
+    /**
+     * Rebuild a proxy from its stored parts
+     *
+     * @param fields The fields of the proxy hash
+     * @param data The data of the proxy (in JSON)
+     * @param players The players of the proxy
+     * @return The {@link HydraProxy}; or <code>null</code> if the proxy doesn't exist
+     */
+    private static HydraProxy parse(Map<String, String> fields, String data, Set<String> players) {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+
+        final Set<UUID> playersIds = new HashSet<>();
+
+        for (String player : players) {
+            playersIds.add(UUID.fromString(player));
+        }
+
+        final String state = fields.get(STATE);
+        final HydraProxy proxy = new HydraProxy(fields.get(NAME),
+                Long.parseLong(fields.getOrDefault(STARTED_TIME, "0")),
+                state == null ? null : HydraProxy.State.valueOf(state),
+                data == null ? new HydraData() : HydraAPI.GSON.fromJson(data, HydraData.class),
+                playersIds,
+                Integer.parseInt(fields.getOrDefault(PORT, "0")));
+
+        proxy.setLastHeartbeat(Long.parseLong(fields.getOrDefault(LAST_HEARTBEAT, "-1")));
+
+        return proxy;
+    }
+
+}
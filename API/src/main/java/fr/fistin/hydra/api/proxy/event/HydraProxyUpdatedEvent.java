@@ -1,26 +1,61 @@
 package fr.fistin.hydra.api.proxy.event;
 
 import fr.fistin.hydra.api.event.HydraEvent;
+import fr.fistin.hydra.api.protocol.data.HydraDelta;
 import fr.fistin.hydra.api.proxy.HydraProxy;
 
 /**
  * Created by AstFaster
  * on 02/11/2022 at 10:11
  *
- * Event fired each time a proxy is updated.
+ * Event fired each time a proxy is updated.<br>
+ * Hydra only sends the fields that changed since the previous version of the proxy,
+ * the full proxy is rebuilt by the {@link fr.fistin.hydra.api.proxy.HydraProxiesService} before passing the event to the listeners.
  */
 public class HydraProxyUpdatedEvent extends HydraEvent {
 
-    /** The updated proxy */
+    /** The updated proxy (<code>null</code> if only a delta was sent) */
     private final HydraProxy proxy;
 
+    /** The name of the updated proxy */
+    private final String name;
+
+    /** The version of the proxy after the update */
+    private final long version;
+    /** The changes since the previous version (<code>null</code> if the full proxy was sent) */
+    private final HydraDelta delta;
+
+    /**
+     * Constructor of a {@link HydraProxyUpdatedEvent}
+     *
+     * @param proxy The updated proxy
+     * @param version The version of the proxy after the update
+     * @param delta The changes since the previous version; or <code>null</code> to send the full proxy
+     */
+    public HydraProxyUpdatedEvent(HydraProxy proxy, long version, HydraDelta delta) {
+        this.proxy = delta == null ? proxy : null;
+        this.name = proxy.getName();
+        this.version = version;
+        this.delta = delta;
+    }
+
+    /**
+     * Constructor of a {@link HydraProxyUpdatedEvent}
+     *
+     * @param proxy The updated proxy
+     * @param version The version of the proxy after the update
+     */
+    public HydraProxyUpdatedEvent(HydraProxy proxy, long version) {
+        this(proxy, version, null);
+    }
+
     /**
      * Constructor of a {@link HydraProxyUpdatedEvent}
      *
      * @param proxy The updated proxy
      */
     public HydraProxyUpdatedEvent(HydraProxy proxy) {
-        this.proxy = proxy;
+        this(proxy, 0);
     }
 
     /**
@@ -32,4 +67,31 @@ public class HydraProxyUpdatedEvent extends HydraEvent {
         return this.proxy;
     }
 
+    /**
+     * Get the name of the updated proxy
+     *
+     * @return A proxy name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the version of the proxy after the update
+     *
+     * @return A version number
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Get the changes since the previous version of the proxy
+     *
+     * @return A {@link HydraDelta}; or <code>null</code> if the full proxy was sent
+     */
+    public HydraDelta getDelta() {
+        return this.delta;
+    }
+
 }
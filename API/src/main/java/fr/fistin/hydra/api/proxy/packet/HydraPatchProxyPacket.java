@@ -0,0 +1,146 @@
+package fr.fistin.hydra.api.proxy.packet;
+
+import fr.fistin.hydra.api.protocol.data.HydraData;
+import fr.fistin.hydra.api.protocol.packet.HydraPacket;
+import fr.fistin.hydra.api.proxy.HydraProxy;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Packet used to only update some information of a proxy in cache by asking Hydra.<br>
+ * The fields that are not set are left unchanged.<br>
+ * Warning: Only the concerned proxy can update its information!
+ */
+public class HydraPatchProxyPacket extends HydraPacket {
+
+    /** The name of the proxy to update */
+    private final String name;
+
+    /** The new state of the proxy */
+    private HydraProxy.State state;
+    /** The new data of the proxy */
+    private HydraData data;
+
+    /** The players that joined the proxy */
+    private Set<UUID> addedPlayers;
+    /** The players that left the proxy */
+    private Set<UUID> removedPlayers;
+
+    /**
+     * Default constructor of a {@link HydraPatchProxyPacket}
+     *
+     * @param name The name of the proxy to update
+     */
+    public HydraPatchProxyPacket(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the proxy to update
+     *
+     * @return A proxy name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the new state of the proxy
+     *
+     * @return A {@link HydraProxy.State}; or <code>null</code> if it's unchanged
+     */
+    public HydraProxy.State getState() {
+        return this.state;
+    }
+
+    /**
+     * Set the new state of the proxy
+     *
+     * @param state The new state
+     * @return This {@link HydraPatchProxyPacket} instance
+     */
+    public HydraPatchProxyPacket withState(HydraProxy.State state) {
+        this.state = state;
+        return this;
+    }
+
+    /**
+     * Get the new data of the proxy
+     *
+     * @return A {@link HydraData}; or <code>null</code> if it's unchanged
+     */
+    public HydraData getData() {
+        return this.data;
+    }
+
+    /**
+     * Set the new data of the proxy
+     *
+     * @param data The new data
+     * @return This {@link HydraPatchProxyPacket} instance
+     */
+    public HydraPatchProxyPacket withData(HydraData data) {
+        this.data = data;
+        return this;
+    }
+
+    /**
+     * Get the players that joined the proxy
+     *
+     * @return A set of player {@link UUID}; or <code>null</code> if no player joined
+     */
+    public Set<UUID> getAddedPlayers() {
+        return this.addedPlayers;
+    }
+
+    /**
+     * Add players that joined the proxy
+     *
+     * @param players The players that joined
+     * @return This {@link HydraPatchProxyPacket} instance
+     */
+    public HydraPatchProxyPacket withAddedPlayers(UUID... players) {
+        if (this.addedPlayers == null) {
+            this.addedPlayers = new HashSet<>();
+        }
+
+        this.addedPlayers.addAll(Arrays.asList(players));
+
+        if (this.removedPlayers != null) {
+            Arrays.asList(players).forEach(this.removedPlayers::remove);
+        }
+        return this;
+    }
+
+    /**
+     * Get the players that left the proxy
+     *
+     * @return A set of player {@link UUID}; or <code>null</code> if no player left
+     */
+    public Set<UUID> getRemovedPlayers() {
+        return this.removedPlayers;
+    }
+
+    /**
+     * Add players that left the proxy
+     *
+     * @param players The players that left
+     * @return This {@link HydraPatchProxyPacket} instance
+     */
+    public HydraPatchProxyPacket withRemovedPlayers(UUID... players) {
+        if (this.removedPlayers == null) {
+            this.removedPlayers = new HashSet<>();
+        }
+
+        this.removedPlayers.addAll(Arrays.asList(players));
+
+        if (this.addedPlayers != null) {
+            Arrays.asList(players).forEach(this.addedPlayers::remove);
+        }
+        return this;
+    }
+
+}
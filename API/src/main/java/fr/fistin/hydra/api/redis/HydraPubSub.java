@@ -1,29 +1,23 @@
 package fr.fistin.hydra.api.redis;
 
 import fr.fistin.hydra.api.HydraAPI;
-import redis.clients.jedis.JedisPubSub;
+import fr.fistin.hydra.api.transport.IHydraTransport;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
 
 /**
  * Project: Hydra
  * Created by AstFaster
  * on 20/11/2021 at 09:48
  */
-public class HydraPubSub extends JedisPubSub {
-
-    /** PubSub state. If <code>true</code>, PubSub are running */
-    private boolean running;
-
-    /** The subscriber thread */
-    private Thread subscriberThread;
+public class HydraPubSub {
 
     /** Map of all receivers subscribed */
     private final Map<String, Set<IHydraReceiver>> receivers;
+    /** Map of all receivers subscribed on patterns */
+    private final Map<String, Set<IHydraReceiver>> patternReceivers;
 
     /** {@link HydraAPI} instance */
     private final HydraAPI hydraAPI;
@@ -35,7 +29,8 @@ public class HydraPubSub extends JedisPubSub {
      */
     public HydraPubSub(HydraAPI hydraAPI) {
         this.hydraAPI = hydraAPI;
-        this.receivers = new HashMap<>();
+        this.receivers = new ConcurrentHashMap<>();
+        this.patternReceivers = new ConcurrentHashMap<>();
     }
 
     /**
@@ -44,20 +39,7 @@ public class HydraPubSub extends JedisPubSub {
     public void start() {
         HydraAPI.log("Starting PubSub...");
 
-        this.running = true;
-
-        this.subscriberThread = new Thread(() -> {
-            while (this.running) {
-                this.hydraAPI.getRedis().process(jedis -> {
-                    jedis.psubscribe(this, HydraAPI.HYDRA_NAME + "*");
-
-                    HydraAPI.log(Level.SEVERE, "Redis is no longer responding to subscriber!");
-
-                    this.stop();
-                });
-            }
-        }, "PubSub Subscriber");
-        this.subscriberThread.start();
+        this.getTransport().start(this::onMessage);
     }
 
     /**
@@ -66,27 +48,24 @@ public class HydraPubSub extends JedisPubSub {
     public void stop() {
         HydraAPI.log("Stopping PubSub...");
 
-        this.running = false;
-
-        if (this.isSubscribed()) {
-            this.unsubscribe();
-        }
-
-        this.subscriberThread.interrupt();
+        this.getTransport().stop();
     }
 
     /**
-     * Subscribe a receiver on a given channel
+     * Subscribe a receiver on a given channel.<br>
+     * The channel is only subscribed on the transport while it has receivers.
      *
      * @param channel Channel
      * @param receiver Receiver to subscribe
      */
-    public void subscribe(String channel, IHydraReceiver receiver) {
-        final Set<IHydraReceiver> receivers = this.receivers.get(channel) != null ? this.receivers.get(channel) : ConcurrentHashMap.newKeySet();
+    public synchronized void subscribe(String channel, IHydraReceiver receiver) {
+        final Set<IHydraReceiver> receivers = this.receivers.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet());
 
-        receivers.add(receiver);
+        if (receivers.isEmpty()) {
+            this.getTransport().subscribe(channel);
+        }
 
-        this.receivers.put(channel, receivers);
+        receivers.add(receiver);
     }
 
     /**
@@ -95,13 +74,44 @@ public class HydraPubSub extends JedisPubSub {
      * @param channel Receiver's channel
      * @param receiver Receiver to unsubscribe
      */
-    public void unsubscribe(String channel, IHydraReceiver receiver) {
+    public synchronized void unsubscribe(String channel, IHydraReceiver receiver) {
         final Set<IHydraReceiver> receivers = this.receivers.get(channel);
 
-        if (receivers != null) {
-            receivers.remove(receiver);
+        if (receivers != null && receivers.remove(receiver) && receivers.isEmpty()) {
+            this.receivers.remove(channel);
+            this.getTransport().unsubscribe(channel);
+        }
+    }
+
+    /**
+     * Subscribe a receiver on all the channels matching a pattern (see {@link IHydraTransport#psubscribe(String)}).<br>
+     * The receiver gets the pattern instead of the channel of the messages.
+     *
+     * @param pattern Pattern
+     * @param receiver Receiver to subscribe
+     */
+    public synchronized void psubscribe(String pattern, IHydraReceiver receiver) {
+        final Set<IHydraReceiver> receivers = this.patternReceivers.computeIfAbsent(pattern, key -> ConcurrentHashMap.newKeySet());
 
-            this.receivers.put(channel, receivers);
+        if (receivers.isEmpty()) {
+            this.getTransport().psubscribe(pattern);
+        }
+
+        receivers.add(receiver);
+    }
+
+    /**
+     * Unsubscribe a receiver from a pattern
+     *
+     * @param pattern Receiver's pattern
+     * @param receiver Receiver to unsubscribe
+     */
+    public synchronized void punsubscribe(String pattern, IHydraReceiver receiver) {
+        final Set<IHydraReceiver> receivers = this.patternReceivers.get(pattern);
+
+        if (receivers != null && receivers.remove(receiver) && receivers.isEmpty()) {
+            this.patternReceivers.remove(pattern);
+            this.getTransport().punsubscribe(pattern);
         }
     }
 
@@ -112,22 +122,34 @@ public class HydraPubSub extends JedisPubSub {
      * @param message Message to send
      */
     public void send(String channel, String message) {
-        this.hydraAPI.getRedis().process(jedis -> jedis.publish(channel, message));
+        this.getTransport().publish(channel, message);
     }
 
     /**
-     * Called when a message is received on PubSub
+     * Called when a message is received by the transport
      *
-     * @param channel Channel where the message is received
+     * @param channel Channel where the message is received (or the pattern matching it)
      * @param message The received message
      */
-    @Override
-    public void onPMessage(String pattern, String channel, String message) {
-        final Set<IHydraReceiver> receivers = this.receivers.get(channel);
+    private void onMessage(String channel, String message) {
+        Set<IHydraReceiver> receivers = this.receivers.get(channel);
+
+        if (receivers == null) {
+            receivers = this.patternReceivers.get(channel);
+        }
 
         if (receivers != null) {
             receivers.forEach(receiver -> receiver.receive(channel, message));
         }
     }
 
+    /**
+     * Get the transport used to send and receive messages
+     *
+     * @return The {@link IHydraTransport} instance
+     */
+    private IHydraTransport getTransport() {
+        return this.hydraAPI.getTransport();
+    }
+
 }
@@ -0,0 +1,483 @@
+package fr.fistin.hydra.api.redis;
+
+import fr.fistin.hydra.api.HydraAPI;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Represents a client-side cache of values read from Redis, invalidated by Redis itself (client tracking, Redis 6+).<br>
+ * Redis sends the name of each modified key under the tracked prefixes on the <code>__redis__:invalidate</code> channel,
+ * the cached values depending on these keys are then dropped.<br>
+ * The cache is bounded: the least recently used values are evicted first.
+ * While the invalidation connection is down, nothing is cached and all the reads go to Redis.<br>
+ * Both connections are checked periodically: a ping is published through the tracking connection to the invalidation connection,
+ * which must receive something before its read timeout. Otherwise, the cache is cleared and the connections are opened again.<br>
+ * The cached values are shared and must not be modified.
+ */
+public class HydraRedisCache {
+
+    /** The channel Redis sends the invalidation messages on */
+    private static final String INVALIDATION_CHANNEL = "__redis__:invalidate";
+    /** The delay before connecting again the invalidation connection after an error (in milliseconds) */
+    private static final long RECONNECT_DELAY = 5000;
+    /** The delay between two checks of the connections (in milliseconds) */
+    private static final long CHECK_DELAY = 5000;
+    /** The time without any message after which the invalidation connection is considered lost (in milliseconds) */
+    private static final int READ_TIMEOUT = (int) (CHECK_DELAY * 3);
+
+    /** The cached values, from the least recently used to the most recently used one */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    /** The values being read from Redis, with the token of the read */
+    private final Map<String, Object> pending = new HashMap<>();
+    /** The cached (or pending) values depending on each Redis key */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    /** The amount of reads answered by the cache */
+    private long hits;
+    /** The amount of reads that went to Redis */
+    private long misses;
+    /** The amount of values evicted because the cache was full */
+    private long evictions;
+
+    /** Whether Redis is currently tracking the keys for the cache */
+    private volatile boolean tracking;
+    /** Cache state. If <code>true</code>, the invalidation connection is kept alive */
+    private volatile boolean running;
+    /** The connection receiving the invalidation messages */
+    private volatile Connection invalidationConnection;
+    /** The connection that enabled the tracking */
+    private volatile Jedis trackingConnection;
+    /** The channel the pings are published on (only listened by the invalidation connection) */
+    private volatile String pingChannel;
+    /** The thread listening for the invalidation messages */
+    private Thread invalidationThread;
+    /** The task checking the connections */
+    private ScheduledFuture<?> checkTask;
+
+    /** The maximum amount of cached values */
+    private final int maxSize;
+    /** The prefixes of the tracked keys */
+    private final List<String> prefixes;
+
+    /** The {@link IHydraRedis} instance */
+    private final IHydraRedis redis;
+    /** The executor running the checks of the connections */
+    private final ScheduledExecutorService executorService;
+
+    /**
+     * Constructor of {@link HydraRedisCache}
+     *
+     * @param redis The {@link IHydraRedis} instance
+     * @param executorService The executor running the checks of the connections
+     * @param maxSize The maximum amount of cached values
+     * @param prefixes The prefixes of the keys the cached values are read from (they cannot overlap)
+     */
+    public HydraRedisCache(IHydraRedis redis, ScheduledExecutorService executorService, int maxSize, List<String> prefixes) {
+        this.redis = redis;
+        this.executorService = executorService;
+        this.maxSize = maxSize;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Start the cache: open the invalidation connection and enable the tracking of the keys
+     */
+    public void start() {
+        this.running = true;
+        this.invalidationThread = new Thread(() -> {
+            while (this.running) {
+                try {
+                    this.listen();
+                } catch (Exception e) {
+                    if (this.running) {
+                        HydraAPI.log(Level.SEVERE, "Lost the Redis cache invalidation connection! Error: " + e.getMessage());
+                    }
+                }
+
+                this.tracking = false;
+                this.clear();
+
+                if (this.running) {
+                    try {
+                        Thread.sleep(RECONNECT_DELAY);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }, "Redis Cache Invalidation");
+        this.invalidationThread.start();
+        this.checkTask = this.executorService.scheduleAtFixedRate(this::check, CHECK_DELAY, CHECK_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check the connections: publish a ping through the tracking connection to the invalidation connection.<br>
+     * If the tracking connection doesn't answer, or if the invalidation connection is not subscribed anymore, the invalidation connection is closed to connect both again.
+     */
+    private void check() {
+        final Jedis tracker = this.trackingConnection;
+        final Connection connection = this.invalidationConnection;
+
+        if (!this.tracking || tracker == null || connection == null) {
+            return;
+        }
+
+        try {
+            if (tracker.publish(this.pingChannel, "ping") > 0) {
+                return;
+            }
+
+            HydraAPI.log(Level.SEVERE, "The Redis cache invalidation connection is not subscribed anymore!");
+        } catch (Exception e) {
+            HydraAPI.log(Level.SEVERE, "Lost the Redis cache tracking connection! Error: " + e.getMessage());
+        }
+
+        // The listening thread fails on its next read, then clears the cache and connects again
+        this.tracking = false;
+        this.clear();
+
+        connection.disconnect();
+    }
+
+    /**
+     * Stop the cache
+     */
+    public void stop() {
+        this.running = false;
+        this.tracking = false;
+
+        if (this.checkTask != null) {
+            this.checkTask.cancel(false);
+        }
+
+        final Connection connection = this.invalidationConnection;
+
+        if (connection != null) {
+            connection.disconnect();
+        }
+
+        if (this.invalidationThread != null) {
+            this.invalidationThread.interrupt();
+        }
+
+        this.clear();
+    }
+
+    /**
+     * Subscribe to the invalidation messages, enable the tracking and process the messages until the connection is lost
+     */
+    private void listen() {
+        try (final Jedis subscriber = this.redis.getResource(); final Jedis tracker = this.redis.getResource()) {
+            final Connection connection = subscriber.getConnection();
+
+            try {
+                this.listen(subscriber, tracker);
+            } finally {
+                // These connections are not usable by anything else once the cache is done with them
+                connection.setBroken();
+                tracker.getConnection().setBroken();
+
+                this.invalidationConnection = null;
+                this.trackingConnection = null;
+            }
+        }
+    }
+
+    /**
+     * Subscribe to the invalidation messages with a connection, and enable the tracking with another one
+     *
+     * @param subscriber The connection receiving the invalidation messages
+     * @param tracker The connection enabling the tracking. The tracking lasts as long as this connection is open
+     */
+    private void listen(Jedis subscriber, Jedis tracker) {
+        final Connection connection = subscriber.getConnection();
+        final long id = subscriber.clientId();
+
+        this.invalidationConnection = connection;
+        this.pingChannel = HydraAPI.HYDRA_HASH + "cache:ping:" + id;
+
+        // The pings are received at least every check, so a silent connection is a lost one
+        connection.setSoTimeout(READ_TIMEOUT);
+        connection.sendCommand(Protocol.Command.SUBSCRIBE, INVALIDATION_CHANNEL, this.pingChannel);
+        connection.getObjectMultiBulkReply();
+        connection.getUnflushedObjectMultiBulkReply();
+
+        // Broadcasting mode: all the changes under the prefixes are sent, whatever the connection that read the keys
+        final List<String> arguments = new ArrayList<>();
+
+        arguments.add("TRACKING");
+        arguments.add("ON");
+        arguments.add("REDIRECT");
+        arguments.add(String.valueOf(id));
+        arguments.add("BCAST");
+
+        for (String prefix : this.prefixes) {
+            arguments.add("PREFIX");
+            arguments.add(prefix);
+        }
+
+        tracker.sendCommand(Protocol.Command.CLIENT, arguments.toArray(new String[0]));
+
+        this.trackingConnection = tracker;
+        this.tracking = true;
+
+        while (this.running) {
+            this.onInvalidation(connection.getUnflushedObjectMultiBulkReply());
+        }
+    }
+
+    /**
+     * Called when a message is received on the invalidation connection
+     *
+     * @param reply The received message
+     */
+    private void onInvalidation(List<Object> reply) {
+        if (reply.size() < 3 || !"message".equals(asString(reply.get(0))) || !INVALIDATION_CHANNEL.equals(asString(reply.get(1)))) {
+            return;
+        }
+
+        final Object keys = reply.get(2);
+
+        // No key means that the whole database was flushed
+        if (!(keys instanceof List)) {
+            this.clear();
+            return;
+        }
+
+        for (Object key : (List<?>) keys) {
+            this.invalidate(asString(key));
+        }
+    }
+
+    /**
+     * Get a value from the cache, or read it from Redis and cache it
+     *
+     * @param key The key of the value in the cache
+     * @param dependencies The Redis keys the value is read from. The value is dropped as soon as one of them is modified
+     * @param loader The function used to read the value from Redis
+     * @return The value (can be <code>null</code>)
+     * @param <T> The type of the value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, List<String> dependencies, Supplier<T> loader) {
+        final Object token = new Object();
+
+        synchronized (this) {
+            final Entry entry = this.entries.get(key);
+
+            if (entry != null) {
+                this.hits++;
+                return (T) entry.value;
+            }
+
+            this.misses++;
+
+            if (this.tracking) {
+                // Mark the value as pending: if one of its keys is modified during the read, the read value will not be cached
+                this.pending.put(key, token);
+                this.index(key, dependencies);
+            }
+        }
+
+        T value = null;
+        boolean loaded = false;
+
+        try {
+            value = loader.get();
+            loaded = true;
+        } finally {
+            synchronized (this) {
+                if (this.pending.remove(key, token) && loaded) {
+                    this.entries.put(key, new Entry(value, dependencies));
+                    this.evict();
+                } else if (!this.entries.containsKey(key) && !this.pending.containsKey(key)) {
+                    this.unindex(key, dependencies);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drop the values depending on a Redis key
+     *
+     * @param redisKey The modified Redis key
+     */
+    public synchronized void invalidate(String redisKey) {
+        final Set<String> keys = this.dependents.remove(redisKey);
+
+        if (keys == null) {
+            return;
+        }
+
+        for (String key : keys) {
+            this.pending.remove(key);
+
+            final Entry entry = this.entries.remove(key);
+
+            if (entry != null) {
+                this.unindex(key, entry.dependencies);
+            }
+        }
+    }
+
+    /**
+     * Drop all the cached values
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.pending.clear();
+        this.dependents.clear();
+    }
+
+    /**
+     * Evict the least recently used values while the cache is full
+     */
+    private void evict() {
+        final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+
+        while (this.entries.size() > this.maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Entry> eldest = iterator.next();
+
+            iterator.remove();
+
+            if (!this.pending.containsKey(eldest.getKey())) {
+                this.unindex(eldest.getKey(), eldest.getValue().dependencies);
+            }
+
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Link a cached value to the Redis keys it depends on
+     *
+     * @param key The key of the value in the cache
+     * @param dependencies The Redis keys
+     */
+    private void index(String key, List<String> dependencies) {
+        for (String dependency : dependencies) {
+            this.dependents.computeIfAbsent(dependency, k -> new HashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * Unlink a cached value from the Redis keys it depends on
+     *
+     * @param key The key of the value in the cache
+     * @param dependencies The Redis keys
+     */
+    private void unindex(String key, List<String> dependencies) {
+        for (String dependency : dependencies) {
+            final Set<String> keys = this.dependents.get(dependency);
+
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                this.dependents.remove(dependency);
+            }
+        }
+    }
+
+    /**
+     * Check whether Redis is currently tracking the keys for the cache.<br>
+     * If not, nothing is cached.
+     *
+     * @return <code>true</code> if the cache is active
+     */
+    public boolean isTracking() {
+        return this.tracking;
+    }
+
+    /**
+     * Get the amount of cached values
+     *
+     * @return A size
+     */
+    public synchronized int getSize() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the maximum amount of cached values
+     *
+     * @return A size
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Get the amount of reads answered by the cache
+     *
+     * @return A number of reads
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Get the amount of reads that went to Redis
+     *
+     * @return A number of reads
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Get the amount of values evicted because the cache was full
+     *
+     * @return A number of values
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Convert a raw Redis reply to a string
+     *
+     * @param reply The reply
+     * @return A string; or <code>null</code> if the reply is not a bulk string
+     */
+    private static String asString(Object reply) {
+        return reply instanceof byte[] ? new String((byte[]) reply, StandardCharsets.UTF_8) : null;
+    }
+
+    /** A cached value */
+    private static class Entry {
+
+        /** The value */
+        private final Object value;
+        /** The Redis keys the value was read from */
+        private final List<String> dependencies;
+
+        /**
+         * Constructor of {@link Entry}
+         *
+         * @param value The value
+         * @param dependencies The Redis keys the value was read from
+         */
+        public Entry(Object value, List<String> dependencies) {
+            this.value = value;
+            this.dependencies = dependencies;
+        }
+
+    }
+
+}
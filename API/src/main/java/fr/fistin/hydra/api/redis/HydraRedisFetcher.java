@@ -0,0 +1,82 @@
+package fr.fistin.hydra.api.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.commands.PipelineCommands;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fetches many records from Redis with pipelined chunks instead of one round trip per record.<br>
+ * Large results are parsed in parallel.
+ */
+public class HydraRedisFetcher {
+
+    /** The default amount of records fetched in one pipeline */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /** The minimum amount of records to parse them in parallel */
+    private static final int PARALLEL_PARSING_THRESHOLD = 256;
+
+    /** The amount of records fetched in one pipeline */
+    private final int batchSize;
+
+    /**
+     * Constructor of {@link HydraRedisFetcher}
+     *
+     * @param batchSize The amount of records fetched in one pipeline
+     */
+    public HydraRedisFetcher(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Fetch and parse some records.<br>
+     * The records that don't exist are ignored.
+     *
+     * @param jedis The Redis connection to use
+     * @param names The names of the records to fetch
+     * @param reader The function queuing the read of a record in a pipeline, and giving a supplier of the parsed record
+     * @param <T> The type of the records
+     * @return A list of parsed records
+     */
+    public <T> List<T> fetch(Jedis jedis, Collection<String> names, BiFunction<PipelineCommands, String, Supplier<T>> reader) {
+        final List<Supplier<T>> records = new ArrayList<>(names.size());
+        Pipeline pipeline = jedis.pipelined();
+        int queued = 0;
+
+        for (String name : names) {
+            records.add(reader.apply(pipeline, name));
+
+            if (++queued == this.batchSize) {
+                pipeline.sync();
+                pipeline = jedis.pipelined();
+                queued = 0;
+            }
+        }
+
+        pipeline.sync();
+
+        final Stream<Supplier<T>> stream = records.size() >= PARALLEL_PARSING_THRESHOLD ? records.parallelStream() : records.stream();
+
+        return stream.map(Supplier::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the amount of records fetched in one pipeline
+     *
+     * @return An amount of records
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+}
@@ -0,0 +1,88 @@
+package fr.fistin.hydra.api.redis;
+
+import fr.fistin.hydra.api.HydraException;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Represents a Lua script executed by Redis.<br>
+ * The script is called by its SHA1 digest, its source is only sent the first time (or after Redis restarted).
+ */
+public class HydraRedisScript {
+
+    /** The Lua source of the script */
+    private final String source;
+    /** The SHA1 digest of the source */
+    private final String sha;
+
+    /**
+     * Constructor of {@link HydraRedisScript}
+     *
+     * @param source The Lua source of the script
+     */
+    public HydraRedisScript(String source) {
+        this.source = source;
+        this.sha = sha1(source);
+    }
+
+    /**
+     * Execute the script
+     *
+     * @param jedis The Redis connection to execute the script with
+     * @param keys The keys passed to the script (<code>KEYS</code>)
+     * @param args The arguments passed to the script (<code>ARGV</code>)
+     * @return The result of the script
+     */
+    public Object eval(Jedis jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(this.sha, keys, args);
+        } catch (JedisNoScriptException e) {
+            // EVAL also loads the script for the next calls
+            return jedis.eval(this.source, keys, args);
+        }
+    }
+
+    /**
+     * Get the Lua source of the script
+     *
+     * @return A Lua source
+     */
+    public String getSource() {
+        return this.source;
+    }
+
+    /**
+     * Get the SHA1 digest of the script, used by Redis to identify it
+     *
+     * @return A hexadecimal digest
+     */
+    public String getSha() {
+        return this.sha;
+    }
+
+    /**
+     * Compute the SHA1 digest of a script source
+     *
+     * @param source The source
+     * @return A hexadecimal digest
+     */
+    private static String sha1(String source) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder builder = new StringBuilder();
+
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new HydraException("SHA-1 is not available to identify Redis scripts!");
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package fr.fistin.hydra.api.redis;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.transport.IHydraTransport;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * The default {@link IHydraTransport} implementation, backed by Redis PubSub.
+ */
+public class HydraRedisTransport extends JedisPubSub implements IHydraTransport {
+
+    /** The channel always subscribed by the transport. Redis ends the subscription as soon as no channel is subscribed anymore. */
+    private static final String MAIN_CHANNEL = HydraAPI.HYDRA_NAME;
+
+    /** Transport state. If <code>true</code>, the subscriber is running */
+    private volatile boolean running;
+
+    /** The subscriber thread */
+    private Thread subscriberThread;
+
+    /** The receiver to forward the messages to */
+    private IHydraReceiver receiver;
+
+    /** The channels the transport needs to be subscribed to */
+    private final Set<String> channels;
+    /** The patterns the transport needs to be subscribed to */
+    private final Set<String> patterns;
+
+    /** The {@link IHydraRedis} instance */
+    private final IHydraRedis redis;
+
+    /**
+     * Constructor of {@link HydraRedisTransport}
+     *
+     * @param redis The {@link IHydraRedis} instance to use
+     */
+    public HydraRedisTransport(IHydraRedis redis) {
+        this.redis = redis;
+        this.channels = ConcurrentHashMap.newKeySet();
+        this.patterns = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public void start(IHydraReceiver receiver) {
+        this.receiver = receiver;
+        this.running = true;
+
+        this.subscriberThread = new Thread(() -> {
+            while (this.running) {
+                this.redis.process(jedis -> {
+                    jedis.subscribe(this, MAIN_CHANNEL);
+
+                    if (this.running) {
+                        HydraAPI.log(Level.SEVERE, "Redis is no longer responding to subscriber!");
+
+                        this.stop();
+                    }
+                });
+            }
+        }, "PubSub Subscriber");
+        this.subscriberThread.start();
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+
+        if (this.isSubscribed()) {
+            // Redis only ends the subscription once no channel and no pattern is subscribed anymore
+            this.unsubscribe();
+            this.punsubscribe();
+        }
+
+        if (this.subscriberThread != null) {
+            this.subscriberThread.interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(String channel) {
+        if (this.channels.add(channel) && this.isSubscribed()) {
+            this.subscribe(new String[] {channel});
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(String channel) {
+        if (this.channels.remove(channel) && this.isSubscribed()) {
+            this.unsubscribe(new String[] {channel});
+        }
+    }
+
+    @Override
+    public synchronized void psubscribe(String pattern) {
+        if (this.patterns.add(pattern) && this.isSubscribed()) {
+            this.psubscribe(new String[] {pattern});
+        }
+    }
+
+    @Override
+    public synchronized void punsubscribe(String pattern) {
+        if (this.patterns.remove(pattern) && this.isSubscribed()) {
+            this.punsubscribe(new String[] {pattern});
+        }
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        this.redis.process(jedis -> jedis.publish(channel, message));
+    }
+
+    /**
+     * Called when a channel is subscribed.<br>
+     * Once the main channel is subscribed, the other channels and the patterns are subscribed too.
+     *
+     * @param channel The subscribed channel
+     * @param subscribedChannels The amount of channels subscribed
+     */
+    @Override
+    public void onSubscribe(String channel, int subscribedChannels) {
+        if (channel.equals(MAIN_CHANNEL)) {
+            synchronized (this) {
+                if (!this.channels.isEmpty()) {
+                    this.subscribe(this.channels.toArray(new String[0]));
+                }
+                if (!this.patterns.isEmpty()) {
+                    this.psubscribe(this.patterns.toArray(new String[0]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when a message is received on PubSub
+     *
+     * @param channel Channel where the message is received
+     * @param message The received message
+     */
+    @Override
+    public void onMessage(String channel, String message) {
+        this.receiver.receive(channel, message);
+    }
+
+    /**
+     * Called when a message is received on PubSub through a pattern
+     *
+     * @param pattern The pattern matching the channel
+     * @param channel Channel where the message is received
+     * @param message The received message
+     */
+    @Override
+    public void onPMessage(String pattern, String channel, String message) {
+        this.receiver.receive(pattern, message);
+    }
+
+}
@@ -0,0 +1,217 @@
+package fr.fistin.hydra.api.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Represents a local copy of objects stored in Redis (e.g. the servers), kept up to date by the events sent by Hydra.<br>
+ * Each object is stored with the version of the last update applied on it: older or duplicated updates are ignored.
+ * The registry is regularly reconciled with Redis to recover from missed events.<br>
+ * The returned objects are shared and must not be modified.
+ *
+ * @param <T> The type of the stored objects
+ */
+public class HydraRegistry<T> {
+
+    /** The stored objects, by name */
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    /** The removed objects, with the sequence number of their removal. Kept until the next reconciliation */
+    private final Map<String, Long> removed = new HashMap<>();
+    /** The sequence number of the last change made on the registry */
+    private long sequence = 0;
+
+    /** The time of the last successful reconciliation (-1 if the registry was never reconciled) */
+    private volatile long lastReconciliation = -1;
+
+    /** The function used to get the name of an object */
+    private final Function<T, String> nameGetter;
+    /** The function used to load all the objects from Redis */
+    private final Supplier<Collection<T>> loader;
+
+    /**
+     * Constructor of {@link HydraRegistry}
+     *
+     * @param nameGetter The function used to get the name of an object
+     * @param loader The function used to load all the objects from Redis
+     */
+    public HydraRegistry(Function<T, String> nameGetter, Supplier<Collection<T>> loader) {
+        this.nameGetter = nameGetter;
+        this.loader = loader;
+    }
+
+    /**
+     * Apply a received version of an object.<br>
+     * The version is ignored if a newer or equal one was already applied, or if the object was removed since the last reconciliation.<br>
+     * The version 0 is unversioned (e.g. a created object, or an update sent by an older Hydra): it's always applied,
+     * and keeps the version of the last versioned update to still ignore the older ones.
+     *
+     * @param name The name of the object
+     * @param version The version of the object (0 if it's unversioned)
+     * @param value The object
+     * @return <code>true</code> if the version was applied
+     */
+    public synchronized boolean update(String name, long version, T value) {
+        final Entry<T> entry = this.entries.get(name);
+
+        if (value == null || this.removed.containsKey(name)) {
+            return false;
+        }
+
+        if (version == 0) {
+            version = entry != null ? entry.version : 0;
+        } else if (entry != null && entry.version >= version) {
+            return false;
+        }
+
+        this.entries.put(name, new Entry<>(value, version, ++this.sequence));
+        return true;
+    }
+
+    /**
+     * Remove an object from the registry (e.g. when a server is stopped)
+     *
+     * @param name The name of the object
+     */
+    public synchronized void remove(String name) {
+        this.entries.remove(name);
+        this.removed.put(name, ++this.sequence);
+    }
+
+    /**
+     * Reconcile the registry with the objects stored in Redis.<br>
+     * The objects updated or removed while Redis was read are kept as they are, the events are more recent than the read values.
+     */
+    public void reconcile() {
+        final long start;
+
+        synchronized (this) {
+            start = this.sequence;
+        }
+
+        final Collection<T> values = this.loader.get();
+
+        synchronized (this) {
+            final Set<String> names = new HashSet<>();
+
+            for (T value : values) {
+                final String name = this.nameGetter.apply(value);
+                final Entry<T> entry = this.entries.get(name);
+                final Long removedSequence = this.removed.get(name);
+
+                names.add(name);
+
+                if ((entry != null && entry.sequence > start) || (removedSequence != null && removedSequence > start)) {
+                    continue;
+                }
+
+                // The versions are not stored in Redis: the next update is always accepted
+                this.entries.put(name, new Entry<>(value, 0, ++this.sequence));
+            }
+
+            this.entries.entrySet().removeIf(entry -> !names.contains(entry.getKey()) && entry.getValue().sequence <= start);
+            this.removed.values().removeIf(removedSequence -> removedSequence <= start);
+            this.lastReconciliation = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get an object from the registry
+     *
+     * @param name The name of the object
+     * @return The object; or <code>null</code> if it's not in the registry
+     */
+    public T get(String name) {
+        final Entry<T> entry = this.entries.get(name);
+
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Get all the objects of the registry
+     *
+     * @return A list of objects
+     */
+    public List<T> getAll() {
+        final List<T> values = new ArrayList<>(this.entries.size());
+
+        for (Entry<T> entry : this.entries.values()) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    /**
+     * Get the version of an object in the registry
+     *
+     * @param name The name of the object
+     * @return The version of the last applied update; or -1 if the object is not in the registry
+     */
+    public long getVersion(String name) {
+        final Entry<T> entry = this.entries.get(name);
+
+        return entry == null ? -1 : entry.version;
+    }
+
+    /**
+     * Check whether the registry is up to date with a version of an object (e.g. the version of a received event)
+     *
+     * @param name The name of the object
+     * @param version The version to check
+     * @return <code>true</code> if the registry contains this version or a newer one
+     */
+    public boolean isUpToDate(String name, long version) {
+        return this.getVersion(name) >= version;
+    }
+
+    /**
+     * Check whether the registry was reconciled at least once, and can be read
+     *
+     * @return <code>true</code> if the registry is ready
+     */
+    public boolean isReady() {
+        return this.lastReconciliation != -1;
+    }
+
+    /**
+     * Get the time of the last successful reconciliation
+     *
+     * @return A timestamp (in milliseconds); or -1 if the registry was never reconciled
+     */
+    public long getLastReconciliation() {
+        return this.lastReconciliation;
+    }
+
+    /** An object stored in the registry */
+    private static class Entry<T> {
+
+        /** The object */
+        private final T value;
+        /** The version of the last update applied on the object */
+        private final long version;
+        /** The sequence number of the change that stored the object */
+        private final long sequence;
+
+        /**
+         * Constructor of {@link Entry}
+         *
+         * @param value The object
+         * @param version The version of the object
+         * @param sequence The sequence number of the change
+         */
+        public Entry(T value, long version, long sequence) {
+            this.value = value;
+            this.version = version;
+            this.sequence = sequence;
+        }
+
+    }
+
+}
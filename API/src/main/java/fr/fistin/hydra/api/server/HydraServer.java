@@ -313,6 +313,15 @@ public class HydraServer {
         return this.lastHeartbeat;
     }
 
+    /**
+     * Set the last heartbeat of the server
+     *
+     * @param lastHeartbeat A heartbeat timestamp (in milliseconds); or -1 if the server never sent a heartbeat
+     */
+    public void setLastHeartbeat(long lastHeartbeat) {
+        this.lastHeartbeat = lastHeartbeat;
+    }
+
     /**
      * The server just sent a heartbeat.
      *
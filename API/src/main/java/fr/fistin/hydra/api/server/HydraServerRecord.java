@@ -0,0 +1,199 @@
+package fr.fistin.hydra.api.server;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import fr.fistin.hydra.api.protocol.data.HydraData;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.commands.PipelineCommands;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Represents the way a {@link HydraServer} is stored in Redis.<br>
+ * The scalar fields are stored in the hash hydra:servers:&lt;name&gt;, so they can be read or updated one by one.
+ * The data and the options are stored in their own keys, and the players are the set maintained by the {@link HydraPlayersService}.
+ */
+public class HydraServerRecord {
+
+    /** The Redis hash of the servers data (hydra:servers-data:&lt;name&gt;) */
+    public static final String DATA_HASH = HydraAPI.HYDRA_HASH + "servers-data:";
+    /** The Redis hash of the servers options (hydra:servers-options:&lt;name&gt;) */
+    public static final String OPTIONS_HASH = HydraAPI.HYDRA_HASH + "servers-options:";
+
+    /** The fields of the server hash */
+    public static final String NAME = "name";
+    public static final String TYPE = "type";
+    public static final String GAME_TYPE = "gameType";
+    public static final String MAP = "map";
+    public static final String ACCESSIBILITY = "accessibility";
+    public static final String PROCESS = "process";
+    public static final String STARTED_TIME = "startedTime";
+    public static final String STATE = "state";
+    public static final String SLOTS = "slots";
+    public static final String LAST_HEARTBEAT = "lastHeartbeat";
+
+    /** All the fields of the server hash */
+    private static final List<String> FIELDS = Arrays.asList(NAME, TYPE, GAME_TYPE, MAP, ACCESSIBILITY, PROCESS, STARTED_TIME, STATE, SLOTS, LAST_HEARTBEAT);
+
+    private HydraServerRecord() {}
+
+    /**
+     * Get the fields of the hash storing a server.<br>
+     * The fields without value are not included.
+     *
+     * @param server The server
+     * @return The fields of the server, by field name
+     */
+    public static Map<String, String> toFields(HydraServer server) {
+        final Map<String, String> fields = new HashMap<>();
+
+        fields.put(NAME, server.getName());
+        fields.put(TYPE, server.getType());
+        fields.put(STARTED_TIME, String.valueOf(server.getStartedTime()));
+        fields.put(SLOTS, String.valueOf(server.getSlots()));
+        fields.put(LAST_HEARTBEAT, String.valueOf(server.getLastHeartbeat()));
+
+        if (server.getGameType() != null) {
+            fields.put(GAME_TYPE, server.getGameType());
+        }
+        if (server.getMap() != null) {
+            fields.put(MAP, server.getMap());
+        }
+        if (server.getAccessibility() != null) {
+            fields.put(ACCESSIBILITY, server.getAccessibility().name());
+        }
+        if (server.getProcess() != null) {
+            fields.put(PROCESS, server.getProcess().name());
+        }
+        if (server.getState() != null) {
+            fields.put(STATE, server.getState().name());
+        }
+        return fields;
+    }
+
+    /**
+     * Write a server in Redis (except its players, maintained by Hydra when they join or leave).<br>
+     * Should be used in a transaction to never expose a partially written server.
+     *
+     * @param pipeline The pipeline or transaction to write the server with
+     * @param server The server to write
+     */
+    public static void write(PipelineCommands pipeline, HydraServer server) {
+        final String name = server.getName();
+        final String key = HydraServersService.getKey(name);
+        final Map<String, String> fields = toFields(server);
+        final List<String> removedFields = new ArrayList<>(FIELDS);
+
+        removedFields.removeAll(fields.keySet());
+
+        pipeline.hset(key, fields);
+
+        if (!removedFields.isEmpty()) {
+            pipeline.hdel(key, removedFields.toArray(new String[0]));
+        }
+
+        pipeline.set(DATA_HASH + name, HydraAPI.GSON.toJson(server.getData()));
+        pipeline.set(OPTIONS_HASH + name, HydraAPI.GSON.toJson(server.getOptions()));
+    }
+
+    /**
+     * Delete a server from Redis (except its players)
+     *
+     * @param pipeline The pipeline or transaction to delete the server with
+     * @param name The name of the server
+     */
+    public static void delete(PipelineCommands pipeline, String name) {
+        pipeline.del(HydraServersService.getKey(name), DATA_HASH + name, OPTIONS_HASH + name);
+    }
+
+    /**
+     * Get all the Redis keys a server is stored in
+     *
+     * @param name The name of the server
+     * @return A list of Redis keys
+     */
+    public static List<String> getKeys(String name) {
+        return Arrays.asList(HydraServersService.getKey(name), DATA_HASH + name, OPTIONS_HASH + name, HydraPlayersService.SERVERS_HASH + name);
+    }
+
+    /**
+     * Get the prefixes of all the Redis keys the servers are stored in
+     *
+     * @return A list of key prefixes
+     */
+    public static List<String> getKeyPrefixes() {
+        return Arrays.asList(HydraServersService.HASH, DATA_HASH, OPTIONS_HASH, HydraPlayersService.SERVERS_HASH);
+    }
+
+    /**
+     * Queue the read of a server in a pipeline
+     *
+     * @param pipeline The pipeline to read the server with
+     * @param name The name of the server
+     * @return A supplier giving the read server once the pipeline is synced (or <code>null</code> if the server doesn't exist)
+     */
+    public static Supplier<HydraServer> read(PipelineCommands pipeline, String name) {
+        final Response<Map<String, String>> fields = pipeline.hgetAll(HydraServersService.getKey(name));
+        final Response<String> data = pipeline.get(DATA_HASH + name);
+        final Response<String> options = pipeline.get(OPTIONS_HASH + name);
+        final Response<Set<String>> players = pipeline.smembers(HydraPlayersService.SERVERS_HASH + name);
+
+        return () -> parse(fields.get(), data.get(), options.get(), players.get());
+    }
+
+    /**
+     * Rebuild a server from its stored parts
+     *
+     * @param fields The fields of the server hash
+     * @param data The data of the server (in JSON)
+     * @param options The options of the server (in JSON)
+     * @param players The players of the server
+     * @return The {@link HydraServer}; or <code>null</code> if the server doesn't exist
+     */
+    private static HydraServer parse(Map<String, String> fields, String data, String options, Set<String> players) {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+
+        final Set<UUID> playersIds = new HashSet<>();
+
+        for (String player : players) {
+            playersIds.add(UUID.fromString(player));
+        }
+
+        final HydraServer server = new HydraServer(fields.get(NAME), fields.get(TYPE), fields.get(GAME_TYPE), fields.get(MAP),
+                parseEnum(HydraServer.Accessibility.class, fields.get(ACCESSIBILITY)),
+                parseEnum(HydraServer.Process.class, fields.get(PROCESS)),
+                Long.parseLong(fields.getOrDefault(STARTED_TIME, "0")),
+                parseEnum(HydraServer.State.class, fields.get(STATE)),
+                options == null ? new HydraServerOptions() : HydraAPI.GSON.fromJson(options, HydraServerOptions.class),
+                data == null ? new HydraData() : HydraAPI.GSON.fromJson(data, HydraData.class),
+                playersIds,
+                Integer.parseInt(fields.getOrDefault(SLOTS, "0")));
+
+        server.setLastHeartbeat(Long.parseLong(fields.getOrDefault(LAST_HEARTBEAT, "-1")));
+
+        return server;
+    }
+
+    /**
+     * Parse a stored enum value
+     *
+     * @param enumClass The class of the enum
+     * @param value The stored value
+     * @param <E> The type of the enum
+     * @return The enum constant; or <code>null</code> if no value is stored
+     */
+    private static <E extends Enum<E>> E parseEnum(Class<E> enumClass, String value) {
+        return value == null ? null : Enum.valueOf(enumClass, value);
+    }
+
+}
@@ -0,0 +1,189 @@
+package fr.fistin.hydra.api.server;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import fr.fistin.hydra.api.redis.HydraRedisScript;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the Redis scripts managing the free slots of the servers.<br>
+ * The free slots of a server are its slots, minus its players, minus the slots reserved for the parties coming to it.
+ * Each reservation is stored in the hash hydra:reservations:servers:&lt;name&gt; (reservation id -&gt; amount:expiry),
+ * and in a sorted set of all the reservations by expiry so they can be released once expired.<br>
+ * The scripts also keep the free slots indexes of the servers up to date ({@link HydraServersService#FREE_SLOTS_INDEX_HASH}).
+ * They access the keys of the servers they find, so they are made for a single Redis instance (not a cluster).
+ */
+public class HydraServerSlots {
+
+    /** The Redis hash of the reservations of each server (hydra:reservations:servers:&lt;name&gt;) */
+    public static final String RESERVATIONS_HASH = HydraAPI.HYDRA_HASH + "reservations:servers:";
+    /** The sorted set of all the reservations (&lt;server&gt;:&lt;reservation id&gt;), scored by their expiry */
+    public static final String EXPIRIES_KEY = HydraAPI.HYDRA_HASH + "reservations:expiries";
+
+    /** The functions shared by all the scripts */
+    private static final String FUNCTIONS = String.join("\n",
+            "local time = redis.call('TIME')",
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)",
+            // Compute the free slots of a server (dropping its expired reservations), and update its free slots indexes
+            "local function refresh(name)",
+            "  local reservations = '" + RESERVATIONS_HASH + "' .. name",
+            "  local fields = redis.call('HMGET', '" + HydraServersService.HASH + "' .. name, '" + HydraServerRecord.TYPE + "', '" + HydraServerRecord.GAME_TYPE + "', '" + HydraServerRecord.MAP + "', '" + HydraServerRecord.STATE + "', '" + HydraServerRecord.ACCESSIBILITY + "', '" + HydraServerRecord.SLOTS + "')",
+            "  if not fields[1] then",
+            "    redis.call('DEL', reservations)",
+            "    return -1",
+            "  end",
+            "  local reserved = 0",
+            "  local entries = redis.call('HGETALL', reservations)",
+            "  for i = 1, #entries, 2 do",
+            "    local amount, expiry = string.match(entries[i + 1], '^(%d+):(%d+)$')",
+            "    if tonumber(expiry) <= now then",
+            "      redis.call('HDEL', reservations, entries[i])",
+            "      redis.call('ZREM', '" + EXPIRIES_KEY + "', name .. ':' .. entries[i])",
+            "    else",
+            "      reserved = reserved + tonumber(amount)",
+            "    end",
+            "  end",
+            "  local free = tonumber(fields[6]) - redis.call('SCARD', '" + HydraPlayersService.SERVERS_HASH + "' .. name) - reserved",
+            "  local joinable = free > 0 and fields[4] == '" + HydraServer.State.READY.name() + "' and fields[5] == '" + HydraServer.Accessibility.PUBLIC.name() + "'",
+            "  local key = '" + HydraServersService.FREE_SLOTS_INDEX_HASH + "' .. fields[1]",
+            "  local keys = {key}",
+            "  if fields[2] then",
+            "    key = key .. ':' .. fields[2]",
+            "    table.insert(keys, key)",
+            "    if fields[3] then",
+            "      table.insert(keys, key .. ':' .. fields[3])",
+            "    end",
+            "  end",
+            "  for _, indexKey in ipairs(keys) do",
+            "    if joinable then",
+            "      redis.call('ZADD', indexKey, free, name)",
+            "    else",
+            "      redis.call('ZREM', indexKey, name)",
+            "    end",
+            "  end",
+            "  return free",
+            "end",
+            // Reserve slots on a server if it has enough free slots
+            "local function reserve(name, amount, id, ttl)",
+            "  if refresh(name) < amount then",
+            "    return false",
+            "  end",
+            "  local expiry = now + ttl",
+            "  redis.call('HSET', '" + RESERVATIONS_HASH + "' .. name, id, amount .. ':' .. expiry)",
+            "  redis.call('ZADD', '" + EXPIRIES_KEY + "', expiry, name .. ':' .. id)",
+            "  refresh(name)",
+            "  return expiry",
+            "end",
+            "");
+
+    /** ARGV: server name. Returns the free slots of the server (-1 if it doesn't exist) */
+    private static final HydraRedisScript REFRESH = new HydraRedisScript(FUNCTIONS + "return refresh(ARGV[1])");
+
+    /** ARGV: server name, amount, reservation id, ttl. Returns the expiry of the reservation; or nil if there are not enough free slots */
+    private static final HydraRedisScript RESERVE = new HydraRedisScript(FUNCTIONS + String.join("\n",
+            "return reserve(ARGV[1], tonumber(ARGV[2]), ARGV[3], tonumber(ARGV[4]))"));
+
+    /** KEYS: free slots index. ARGV: amount, reservation id, ttl, max candidates. Returns {server name, expiry}; or nil if no server can be reserved */
+    private static final HydraRedisScript RESERVE_AVAILABLE = new HydraRedisScript(FUNCTIONS + String.join("\n",
+            "local amount = tonumber(ARGV[1])",
+            "for _, name in ipairs(redis.call('ZRANGEBYSCORE', KEYS[1], amount, '+inf', 'LIMIT', 0, tonumber(ARGV[4]))) do",
+            // The candidates with wrong free slots (e.g. expired reservations) are fixed by the reservation attempt
+            "  local expiry = reserve(name, amount, ARGV[2], tonumber(ARGV[3]))",
+            "  if expiry then",
+            "    return {name, expiry}",
+            "  end",
+            "end",
+            "return false"));
+
+    /** ARGV: server name, reservation id. Returns 1 if the reservation existed */
+    private static final HydraRedisScript RELEASE = new HydraRedisScript(FUNCTIONS + String.join("\n",
+            "local removed = redis.call('HDEL', '" + RESERVATIONS_HASH + "' .. ARGV[1], ARGV[2])",
+            "redis.call('ZREM', '" + EXPIRIES_KEY + "', ARGV[1] .. ':' .. ARGV[2])",
+            "refresh(ARGV[1])",
+            "return removed"));
+
+    /** Returns the amount of released reservations */
+    private static final HydraRedisScript RELEASE_EXPIRED = new HydraRedisScript(FUNCTIONS + String.join("\n",
+            "local expired = redis.call('ZRANGEBYSCORE', '" + EXPIRIES_KEY + "', '-inf', now)",
+            "local servers = {}",
+            "for _, reservation in ipairs(expired) do",
+            "  servers[string.match(reservation, '^(.*):[^:]*$')] = true",
+            "end",
+            "redis.call('ZREMRANGEBYSCORE', '" + EXPIRIES_KEY + "', '-inf', now)",
+            "for name in pairs(servers) do",
+            "  refresh(name)",
+            "end",
+            "return #expired"));
+
+    /** The maximum amount of servers tried by {@link #reserveAvailable(Jedis, String, int, String, long)} */
+    private static final int MAX_CANDIDATES = 16;
+
+    private HydraServerSlots() {}
+
+    /**
+     * Compute the free slots of a server, and update its free slots indexes
+     *
+     * @param jedis The Redis connection
+     * @param name The name of the server
+     * @return The free slots of the server; or -1 if the server doesn't exist
+     */
+    public static long refresh(Jedis jedis, String name) {
+        return (Long) REFRESH.eval(jedis, Collections.emptyList(), Collections.singletonList(name));
+    }
+
+    /**
+     * Reserve slots on a server if it has enough free slots
+     *
+     * @param jedis The Redis connection
+     * @param name The name of the server
+     * @param amount The amount of slots to reserve
+     * @param id The id of the reservation
+     * @param ttl The time before the reservation expires (in milliseconds)
+     * @return The expiry of the reservation (Redis time, in milliseconds); or <code>null</code> if the server doesn't have enough free slots
+     */
+    public static Long reserve(Jedis jedis, String name, int amount, String id, long ttl) {
+        return (Long) RESERVE.eval(jedis, Collections.emptyList(), Arrays.asList(name, String.valueOf(amount), id, String.valueOf(ttl)));
+    }
+
+    /**
+     * Reserve slots on the joinable server with the fewest free slots that can still welcome them
+     *
+     * @param jedis The Redis connection
+     * @param freeSlotsKey The free slots index to take the server from
+     * @param amount The amount of slots to reserve
+     * @param id The id of the reservation
+     * @param ttl The time before the reservation expires (in milliseconds)
+     * @return The reserved server name, then the expiry of the reservation; or <code>null</code> if no server can welcome the players
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Object> reserveAvailable(Jedis jedis, String freeSlotsKey, int amount, String id, long ttl) {
+        return (List<Object>) RESERVE_AVAILABLE.eval(jedis, Collections.singletonList(freeSlotsKey), Arrays.asList(String.valueOf(amount), id, String.valueOf(ttl), String.valueOf(MAX_CANDIDATES)));
+    }
+
+    /**
+     * Release a reservation (e.g. once the players arrived)
+     *
+     * @param jedis The Redis connection
+     * @param name The name of the reserved server
+     * @param id The id of the reservation
+     * @return <code>true</code> if the reservation was still active
+     */
+    public static boolean release(Jedis jedis, String name, String id) {
+        return (Long) RELEASE.eval(jedis, Collections.emptyList(), Arrays.asList(name, id)) == 1;
+    }
+
+    /**
+     * Release all the expired reservations, and give their slots back to the servers
+     *
+     * @param jedis The Redis connection
+     * @return The amount of released reservations
+     */
+    public static long releaseExpired(Jedis jedis) {
+        return (Long) RELEASE_EXPIRED.eval(jedis, Collections.emptyList(), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,96 @@
+package fr.fistin.hydra.api.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents a query on the servers indexes maintained by Hydra.<br>
+ * Only the servers matching all the given criteria are returned.
+ */
+public class HydraServersQuery {
+
+    /** The indexed values of the query, by indexed field */
+    private final Map<String, String> criteria = new LinkedHashMap<>();
+
+    /**
+     * Only get the servers with a given type
+     *
+     * @param type The type of the servers
+     * @return This {@link HydraServersQuery} instance
+     */
+    public HydraServersQuery withType(String type) {
+        return this.with(HydraServersService.TYPE_INDEX, type);
+    }
+
+    /**
+     * Only get the servers with a given type of game
+     *
+     * @param gameType The type of game of the servers
+     * @return This {@link HydraServersQuery} instance
+     */
+    public HydraServersQuery withGameType(String gameType) {
+        return this.with(HydraServersService.GAME_TYPE_INDEX, gameType);
+    }
+
+    /**
+     * Only get the servers with a given map
+     *
+     * @param map The map of the servers
+     * @return This {@link HydraServersQuery} instance
+     */
+    public HydraServersQuery withMap(String map) {
+        return this.with(HydraServersService.MAP_INDEX, map);
+    }
+
+    /**
+     * Only get the servers with a given accessibility
+     *
+     * @param accessibility The accessibility of the servers
+     * @return This {@link HydraServersQuery} instance
+     */
+    public HydraServersQuery withAccessibility(HydraServer.Accessibility accessibility) {
+        return this.with(HydraServersService.ACCESSIBILITY_INDEX, accessibility.name());
+    }
+
+    /**
+     * Only get the servers with a given state
+     *
+     * @param state The state of the servers
+     * @return This {@link HydraServersQuery} instance
+     */
+    public HydraServersQuery withState(HydraServer.State state) {
+        return this.with(HydraServersService.STATE_INDEX, state.name());
+    }
+
+    /**
+     * Add a criterion to the query
+     *
+     * @param index The indexed field
+     * @param value The value of the field
+     * @return This {@link HydraServersQuery} instance
+     */
+    private HydraServersQuery with(String index, String value) {
+        this.criteria.put(index, value);
+        return this;
+    }
+
+    /**
+     * Get the criteria of the query
+     *
+     * @return The indexed values, by indexed field
+     */
+    public Map<String, String> getCriteria() {
+        return this.criteria;
+    }
+
+    /**
+     * Check whether a server matches the query
+     *
+     * @param server The server to check
+     * @return <code>true</code> if the server matches all the criteria
+     */
+    public boolean matches(HydraServer server) {
+        return HydraServersService.getIndexedValues(server).entrySet().containsAll(this.criteria.entrySet());
+    }
+
+}
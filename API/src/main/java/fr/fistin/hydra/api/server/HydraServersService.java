@@ -2,16 +2,34 @@ package fr.fistin.hydra.api.server;
 
 import fr.fistin.hydra.api.HydraAPI;
 import fr.fistin.hydra.api.HydraException;
+import fr.fistin.hydra.api.event.HydraEventBus;
+import fr.fistin.hydra.api.event.HydraEventRegistry;
 import fr.fistin.hydra.api.protocol.HydraChannel;
+import fr.fistin.hydra.api.protocol.data.HydraDeltaMerger;
 import fr.fistin.hydra.api.protocol.response.HydraResponseCallback;
 import fr.fistin.hydra.api.protocol.response.HydraResponseType;
+import fr.fistin.hydra.api.redis.HydraRedisCache;
+import fr.fistin.hydra.api.registry.HydraRegistry;
+import fr.fistin.hydra.api.server.event.HydraServerStartedEvent;
+import fr.fistin.hydra.api.server.event.HydraServerStoppedEvent;
+import fr.fistin.hydra.api.server.event.HydraServerUpdatedEvent;
+import fr.fistin.hydra.api.server.packet.HydraPatchServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraStartServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraStopServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraUpdateServerPacket;
+import redis.clients.jedis.Pipeline;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 /**
  * Created by AstFaster
@@ -19,9 +37,27 @@ import java.util.function.Consumer;
  */
 public class HydraServersService {
 
-    /** The servers Redis hash */
+    /** The servers Redis hash. Each server is stored in hydra:servers:&lt;name&gt; */
     public static final String HASH = HydraAPI.HYDRA_HASH + "servers:";
 
+    /** The Redis hash of the servers indexes. Each index is a set of server names: hydra:index:servers:&lt;field&gt;:&lt;value&gt; */
+    public static final String INDEX_HASH = HydraAPI.HYDRA_HASH + "index:servers:";
+    /** The index of all the servers */
+    public static final String ALL_INDEX = INDEX_HASH + "all";
+    /** The indexed fields */
+    public static final String TYPE_INDEX = "type";
+    public static final String GAME_TYPE_INDEX = "gameType";
+    public static final String MAP_INDEX = "map";
+    public static final String ACCESSIBILITY_INDEX = "accessibility";
+    public static final String STATE_INDEX = "state";
+    /** The Redis hash of the free slots indexes. Each index is a sorted set of joinable server names, scored by their free slots */
+    public static final String FREE_SLOTS_INDEX_HASH = INDEX_HASH + "free:";
+
+    /** The merger used to rebuild the servers from the deltas sent in {@link HydraServerUpdatedEvent} */
+    private final HydraDeltaMerger<HydraServer> merger;
+    /** The local registry of the servers (<code>null</code> if it's not enabled) */
+    private volatile HydraRegistry<HydraServer> registry;
+
     /** The {@link HydraAPI} instance */
     private final HydraAPI hydraAPI;
 
@@ -32,6 +68,100 @@ public class HydraServersService {
      */
     public HydraServersService(HydraAPI hydraAPI) {
         this.hydraAPI = hydraAPI;
+        this.merger = new HydraDeltaMerger<>(HydraServer.class, this::fetchServer, this.hydraAPI.getExecutorService(), this::onReload);
+
+        final HydraEventRegistry registry = this.hydraAPI.getEventBus().getRegistry();
+
+        registry.setResolver(HydraServerUpdatedEvent.class, this::resolveUpdate);
+        registry.setResolver(HydraServerStoppedEvent.class, event -> {
+            this.merger.forget(event.getServer().getName());
+            return event;
+        });
+    }
+
+    /**
+     * Start the local registry of the servers.<br>
+     * Once started, the servers are read from memory: the registry is filled once from Redis, then kept up to date by the servers events.
+     *
+     * @param reconciliationDelay The delay between two reconciliations of the registry with Redis (in seconds)
+     */
+    public void startRegistry(int reconciliationDelay) {
+        final HydraRegistry<HydraServer> registry = new HydraRegistry<>(HydraServer::getName, () -> this.fetchServers(new HydraServersQuery()));
+        final HydraEventBus eventBus = this.hydraAPI.getEventBus();
+
+        eventBus.subscribe(HydraServerStartedEvent.class, event -> registry.update(event.getServer().getName(), 0, event.getServer()));
+        eventBus.subscribe(HydraServerUpdatedEvent.class, event -> registry.update(event.getName(), event.getVersion(), event.getServer()));
+        eventBus.subscribe(HydraServerStoppedEvent.class, event -> registry.remove(event.getServer().getName()));
+
+        this.registry = registry;
+
+        // The first reconciliation fills the registry
+        this.hydraAPI.getExecutorService().scheduleAtFixedRate(() -> {
+            try {
+                registry.reconcile();
+            } catch (Exception e) {
+                HydraAPI.log(Level.SEVERE, "Couldn't reconcile the servers registry! Error: " + e.getMessage());
+            }
+        }, 0, reconciliationDelay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get the local registry of the servers
+     *
+     * @return The {@link HydraRegistry} of the servers; or <code>null</code> if it's not enabled
+     */
+    public HydraRegistry<HydraServer> getRegistry() {
+        return this.registry;
+    }
+
+    /**
+     * Get the local registry of the servers if it can be read
+     *
+     * @return The {@link HydraRegistry} of the servers; or <code>null</code> if it's not enabled or not filled yet
+     */
+    private HydraRegistry<HydraServer> getReadyRegistry() {
+        final HydraRegistry<HydraServer> registry = this.registry;
+
+        return registry != null && registry.isReady() ? registry : null;
+    }
+
+    /**
+     * Called when a server was reloaded after missing some of its updates
+     *
+     * @param server The reloaded server
+     * @param version The version of the server
+     */
+    private void onReload(HydraServer server, long version) {
+        if (server.getState() == HydraServer.State.SHUTDOWN) {
+            this.merger.forget(server.getName());
+        }
+
+        // Replaces the updates dropped while the server was missing
+        this.hydraAPI.getEventBus().dispatch(new HydraServerUpdatedEvent(server, version));
+    }
+
+    /**
+     * Rebuild the full server of a received {@link HydraServerUpdatedEvent}
+     *
+     * @param event The received event
+     * @return The event with the full server; or <code>null</code> if the server couldn't be rebuilt
+     */
+    private HydraServerUpdatedEvent resolveUpdate(HydraServerUpdatedEvent event) {
+        // Sent by an older Hydra: only the full server, without its name and version
+        if (event.getName() == null) {
+            return event.getServer() == null ? null : new HydraServerUpdatedEvent(event.getServer());
+        }
+
+        final HydraServer server = this.merger.merge(event.getName(), event.getVersion(), event.getServer(), event.getDelta());
+
+        if (server == null) {
+            return null;
+        }
+
+        if (server.getState() == HydraServer.State.SHUTDOWN) {
+            this.merger.forget(server.getName());
+        }
+        return event.getDelta() == null ? event : new HydraServerUpdatedEvent(server, event.getVersion());
     }
 
     /**
@@ -65,6 +195,7 @@ public class HydraServersService {
     /**
      * Update a server in cache by asking Hydra.<br>
      * Only the concerned server can perform this action.
+     * The players of the server are ignored: use {@link fr.fistin.hydra.api.player.HydraPlayersService} to tell when they join or leave.
      *
      * @param server The server to update
      */
@@ -76,6 +207,21 @@ public class HydraServersService {
         this.hydraAPI.getConnection().sendPacket(HydraChannel.SERVERS, new HydraUpdateServerPacket(server)).exec();
     }
 
+    /**
+     * Only update some information of a server in cache by asking Hydra.<br>
+     * It's lighter than sending the whole server with {@link #updateServer(HydraServer)}.
+     * Only the concerned server can perform this action.
+     *
+     * @param patch The information to update
+     */
+    public void patchServer(HydraPatchServerPacket patch) {
+        if (!this.hydraAPI.getApplication().equals(patch.getName())) {
+            throw new HydraException("Servers can only be updated by themself or Hydra!");
+        }
+
+        this.hydraAPI.getConnection().sendPacket(HydraChannel.SERVERS, patch).exec();
+    }
+
     /**
      * Stop a running server by querying Hydra
      *
@@ -98,35 +244,66 @@ public class HydraServersService {
     }
 
     /**
-     * Get a server from the Redis cache.
+     * Get a server from the Redis cache (or from the local registry or the client-side cache if they are enabled).
      *
      * @param name The name of the server to get
      * @return The found {@link HydraServer}; or <code>null</code> if nothing was found
      */
     public HydraServer getServer(String name) {
+        final HydraRegistry<HydraServer> registry = this.getReadyRegistry();
+
+        if (registry != null) {
+            return registry.get(name);
+        }
+
+        final HydraRedisCache cache = this.hydraAPI.getRedisCache();
+
+        if (cache != null) {
+            return cache.get(getKey(name), HydraServerRecord.getKeys(name), () -> this.fetchServer(name));
+        }
+        return this.fetchServer(name);
+    }
+
+    /**
+     * Read a server from Redis
+     *
+     * @param name The name of the server to read
+     * @return The found {@link HydraServer}; or <code>null</code> if nothing was found
+     */
+    private HydraServer fetchServer(String name) {
         return this.hydraAPI.getRedis().get(jedis -> {
-            final String json = jedis.get(HASH + name);
+            final Pipeline pipeline = jedis.pipelined();
+            final Supplier<HydraServer> server = HydraServerRecord.read(pipeline, name);
+
+            pipeline.sync();
 
-            return json == null ? null : HydraAPI.GSON.fromJson(json, HydraServer.class);
+            return server.get();
         });
     }
 
     /**
-     * Get all servers from Redis cache.
+     * Get the state of a server from the Redis cache, without reading the whole server.
      *
-     * @return A list of {@link HydraServer}
+     * @param name The name of the server
+     * @return A {@link HydraServer.State}; or <code>null</code> if the server doesn't exist
      */
-    public List<HydraServer> getServers() {
+    public HydraServer.State getServerState(String name) {
         return this.hydraAPI.getRedis().get(jedis -> {
-            final List<HydraServer> servers = new ArrayList<>();
+            final String state = jedis.hget(getKey(name), HydraServerRecord.STATE);
 
-            for (String key : jedis.keys(HASH + "*")) {
-                servers.add(HydraAPI.GSON.fromJson(jedis.get(key), HydraServer.class));
-            }
-            return servers;
+            return state == null ? null : HydraServer.State.valueOf(state);
         });
     }
 
+    /**
+     * Get all servers from Redis cache.
+     *
+     * @return A list of {@link HydraServer}
+     */
+    public List<HydraServer> getServers() {
+        return this.getServers(new HydraServersQuery());
+    }
+
     /**
      * Get all servers with the same type from Redis cache.
      *
@@ -134,14 +311,207 @@ public class HydraServersService {
      * @return A list of {@link HydraServer} with the same type
      */
     public List<HydraServer> getServers(String type) {
+        return this.getServers(new HydraServersQuery().withType(type));
+    }
+
+    /**
+     * Get the servers matching a query from Redis cache.<br>
+     * The query is answered by the indexes maintained by Hydra, no key is scanned.
+     * If the local registry is enabled, the query is answered from memory.
+     *
+     * @param query The query to run
+     * @return A list of {@link HydraServer} matching the query
+     */
+    public List<HydraServer> getServers(HydraServersQuery query) {
+        final HydraRegistry<HydraServer> registry = this.getReadyRegistry();
+
+        if (registry != null) {
+            return registry.getAll().stream().filter(query::matches).collect(Collectors.toList());
+        }
+        return this.fetchServers(query);
+    }
+
+    /**
+     * Read the servers matching a query from Redis
+     *
+     * @param query The query to run
+     * @return A list of {@link HydraServer} matching the query
+     */
+    private List<HydraServer> fetchServers(HydraServersQuery query) {
         return this.hydraAPI.getRedis().get(jedis -> {
-            final List<HydraServer> servers = new ArrayList<>();
+            final Map<String, String> criteria = query.getCriteria();
+            final Set<String> names;
 
-            for (String key : jedis.keys(HASH + type + "-*")) {
-                servers.add(HydraAPI.GSON.fromJson(jedis.get(key), HydraServer.class));
+            if (criteria.isEmpty()) {
+                names = jedis.smembers(ALL_INDEX);
+            } else {
+                names = jedis.sinter(criteria.entrySet().stream()
+                        .map(entry -> getIndexKey(entry.getKey(), entry.getValue()))
+                        .toArray(String[]::new));
             }
-            return servers;
+
+            return this.hydraAPI.getRedisFetcher().fetch(jedis, names, HydraServerRecord::read);
+        });
+    }
+
+    /**
+     * Find the best server to send players to: the joinable server with the fewest free slots that can still welcome all of them.<br>
+     * Only the public servers that are ready are joinable.
+     * The query is answered by the free slots indexes maintained by Hydra.
+     *
+     * @param type The type of the server
+     * @param gameType The type of game of the server; or <code>null</code> for any type of game
+     * @param map The map of the server; or <code>null</code> for any map. It's only used if a type of game is given
+     * @param partySize The amount of players to send
+     * @return The name of the found server; or <code>null</code> if no server can welcome the players
+     */
+    public String findAvailableServer(String type, String gameType, String map, int partySize) {
+        return this.hydraAPI.getRedis().get(jedis -> {
+            final List<String> names = jedis.zrangeByScore(getFreeSlotsKey(type, gameType, map), partySize, Double.POSITIVE_INFINITY, 0, 1);
+
+            return names.isEmpty() ? null : names.get(0);
         });
     }
 
+    /**
+     * Reserve slots on a server for a party of players.<br>
+     * The free slots are checked and reserved atomically by Redis, so two parties cannot get the same slots.
+     * The reservation must be confirmed with {@link #confirmReservation(HydraSlotsReservation)} once the players arrived.
+     *
+     * @param server The name of the server
+     * @param amount The amount of slots to reserve
+     * @param ttl The time before the reservation expires and its slots are given back (in milliseconds)
+     * @return The created {@link HydraSlotsReservation}; or <code>null</code> if the server doesn't have enough free slots
+     */
+    public HydraSlotsReservation reserveSlots(String server, int amount, long ttl) {
+        if (amount <= 0 || ttl <= 0) {
+            throw new HydraException("The amount of slots and the time of a reservation must be positive!");
+        }
+
+        final String id = UUID.randomUUID().toString();
+        final Long expiry = this.hydraAPI.getRedis().get(jedis -> HydraServerSlots.reserve(jedis, server, amount, id, ttl));
+
+        return expiry == null ? null : new HydraSlotsReservation(id, server, amount, expiry);
+    }
+
+    /**
+     * Find the best server for a party of players (like {@link #findAvailableServer(String, String, String, int)}) and reserve slots on it, atomically.
+     *
+     * @param type The type of the server
+     * @param gameType The type of game of the server; or <code>null</code> for any type of game
+     * @param map The map of the server; or <code>null</code> for any map. It's only used if a type of game is given
+     * @param partySize The amount of players to send
+     * @param ttl The time before the reservation expires and its slots are given back (in milliseconds)
+     * @return The created {@link HydraSlotsReservation}; or <code>null</code> if no server can welcome the players
+     */
+    public HydraSlotsReservation reserveAvailableServer(String type, String gameType, String map, int partySize, long ttl) {
+        if (partySize <= 0 || ttl <= 0) {
+            throw new HydraException("The amount of slots and the time of a reservation must be positive!");
+        }
+
+        final String id = UUID.randomUUID().toString();
+        final List<Object> result = this.hydraAPI.getRedis().get(jedis -> HydraServerSlots.reserveAvailable(jedis, getFreeSlotsKey(type, gameType, map), partySize, id, ttl));
+
+        return result == null ? null : new HydraSlotsReservation(id, (String) result.get(0), partySize, (Long) result.get(1));
+    }
+
+    /**
+     * Confirm a reservation once its players arrived on the server: they now use their own slots
+     *
+     * @param reservation The reservation to confirm
+     * @return <code>true</code> if the reservation was confirmed; <code>false</code> if it already expired (or if Redis couldn't be reached)
+     */
+    public boolean confirmReservation(HydraSlotsReservation reservation) {
+        final Boolean confirmed = this.hydraAPI.getRedis().get(jedis -> HydraServerSlots.release(jedis, reservation.getServer(), reservation.getId()));
+
+        return confirmed != null && confirmed;
+    }
+
+    /**
+     * Get the Redis key of a server
+     *
+     * @param name The name of the server
+     * @return A Redis key
+     */
+    public static String getKey(String name) {
+        return HASH + name;
+    }
+
+    /**
+     * Get the key of a servers index
+     *
+     * @param index The indexed field (e.g. {@link #TYPE_INDEX})
+     * @param value The indexed value
+     * @return A Redis key
+     */
+    public static String getIndexKey(String index, String value) {
+        return INDEX_HASH + index + ":" + value;
+    }
+
+    /**
+     * Get the key of the most specific free slots index for a type, a type of game and a map
+     *
+     * @param type The type of the servers
+     * @param gameType The type of game of the servers; or <code>null</code>
+     * @param map The map of the servers; or <code>null</code> (only used with a type of game)
+     * @return A Redis key
+     */
+    public static String getFreeSlotsKey(String type, String gameType, String map) {
+        final List<String> keys = getFreeSlotsKeys(type, gameType, map);
+
+        return keys.get(keys.size() - 1);
+    }
+
+    /**
+     * Get the keys of all the free slots indexes a server with a type, a type of game and a map is in:
+     * one for its type, one for its type and its type of game, and one for all of them.
+     *
+     * @param type The type of the server
+     * @param gameType The type of game of the server; or <code>null</code>
+     * @param map The map of the server; or <code>null</code>
+     * @return A list of Redis keys, from the most general to the most specific one
+     */
+    public static List<String> getFreeSlotsKeys(String type, String gameType, String map) {
+        final List<String> keys = new ArrayList<>();
+        String key = FREE_SLOTS_INDEX_HASH + type;
+
+        keys.add(key);
+
+        if (gameType != null) {
+            keys.add(key += ":" + gameType);
+
+            if (map != null) {
+                keys.add(key + ":" + map);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get the values of a server stored in the indexes.<br>
+     * The fields without value are not indexed.
+     *
+     * @param server The server
+     * @return The indexed values, by indexed field
+     */
+    public static Map<String, String> getIndexedValues(HydraServer server) {
+        final Map<String, String> values = new HashMap<>();
+
+        values.put(TYPE_INDEX, server.getType());
+
+        if (server.getGameType() != null) {
+            values.put(GAME_TYPE_INDEX, server.getGameType());
+        }
+        if (server.getMap() != null) {
+            values.put(MAP_INDEX, server.getMap());
+        }
+        if (server.getAccessibility() != null) {
+            values.put(ACCESSIBILITY_INDEX, server.getAccessibility().name());
+        }
+        if (server.getState() != null) {
+            values.put(STATE_INDEX, server.getState().name());
+        }
+        return values;
+    }
+
 }
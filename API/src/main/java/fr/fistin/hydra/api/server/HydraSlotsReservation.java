@@ -0,0 +1,69 @@
+package fr.fistin.hydra.api.server;
+
+/**
+ * Represents slots reserved on a server for a party of players.<br>
+ * The reservation must be confirmed once the players arrived, otherwise the slots are given back when it expires.
+ */
+public class HydraSlotsReservation {
+
+    /** The id of the reservation */
+    private final String id;
+    /** The name of the reserved server */
+    private final String server;
+    /** The amount of reserved slots */
+    private final int amount;
+    /** The time when the reservation expires (Redis time, in milliseconds) */
+    private final long expiry;
+
+    /**
+     * Constructor of {@link HydraSlotsReservation}
+     *
+     * @param id The id of the reservation
+     * @param server The name of the reserved server
+     * @param amount The amount of reserved slots
+     * @param expiry The time when the reservation expires
+     */
+    public HydraSlotsReservation(String id, String server, int amount, long expiry) {
+        this.id = id;
+        this.server = server;
+        this.amount = amount;
+        this.expiry = expiry;
+    }
+
+    /**
+     * Get the id of the reservation
+     *
+     * @return A reservation id
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the name of the reserved server
+     *
+     * @return A server name
+     */
+    public String getServer() {
+        return this.server;
+    }
+
+    /**
+     * Get the amount of reserved slots
+     *
+     * @return An amount of slots
+     */
+    public int getAmount() {
+        return this.amount;
+    }
+
+    /**
+     * Get the time when the reservation expires
+     *
+     * @return A timestamp (Redis time, in milliseconds)
+     */
+    public long getExpiry() {
+        return this.expiry;
+    }
+
+}
@@ -1,15 +1,20 @@
 package fr.fistin.hydra.api.server.event;
 
 import fr.fistin.hydra.api.event.HydraEvent;
+import fr.fistin.hydra.api.event.IHydraTopicEvent;
 import fr.fistin.hydra.api.server.HydraServer;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Created by AstFaster
  * on 02/11/2022 at 10:11
  *
- * Event fired each time a server is stopped.
+ * Event fired each time a server is stopped.<br>
+ * Its topic is the type of the server, then its type of game.
  */
-public class HydraServerStoppedEvent extends HydraEvent {
+public class HydraServerStoppedEvent extends HydraEvent implements IHydraTopicEvent {
 
     /** The stopped server */
     private final HydraServer server;
@@ -32,4 +37,14 @@ public class HydraServerStoppedEvent extends HydraEvent {
         return this.server;
     }
 
+    /**
+     * Get the topic of the event: the type of the server, then its type of game
+     *
+     * @return A list of topic parts
+     */
+    @Override
+    public List<String> getTopic() {
+        return Arrays.asList(this.server.getType(), this.server.getGameType());
+    }
+
 }
@@ -1,26 +1,72 @@
 package fr.fistin.hydra.api.server.event;
 
 import fr.fistin.hydra.api.event.HydraEvent;
+import fr.fistin.hydra.api.event.IHydraTopicEvent;
+import fr.fistin.hydra.api.protocol.data.HydraDelta;
 import fr.fistin.hydra.api.server.HydraServer;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Created by AstFaster
  * on 02/11/2022 at 10:11
  *
- * Event fired each time a server is updated.
+ * Event fired each time a server is updated.<br>
+ * Its topic is the type of the server, then its type of game.<br>
+ * Hydra only sends the fields that changed since the previous version of the server,
+ * the full server is rebuilt by the {@link fr.fistin.hydra.api.server.HydraServersService} before passing the event to the listeners.
  */
-public class HydraServerUpdatedEvent extends HydraEvent {
+public class HydraServerUpdatedEvent extends HydraEvent implements IHydraTopicEvent {
 
-    /** The updated server */
+    /** The updated server (<code>null</code> if only a delta was sent) */
     private final HydraServer server;
 
+    /** The name of the updated server */
+    private final String name;
+    /** The type of the updated server */
+    private final String type;
+    /** The type of game of the updated server */
+    private final String gameType;
+
+    /** The version of the server after the update */
+    private final long version;
+    /** The changes since the previous version (<code>null</code> if the full server was sent) */
+    private final HydraDelta delta;
+
+    /**
+     * Constructor of a {@link HydraServerUpdatedEvent}
+     *
+     * @param server The updated server
+     * @param version The version of the server after the update
+     * @param delta The changes since the previous version; or <code>null</code> to send the full server
+     */
+    public HydraServerUpdatedEvent(HydraServer server, long version, HydraDelta delta) {
+        this.server = delta == null ? server : null;
+        this.name = server.getName();
+        this.type = server.getType();
+        this.gameType = server.getGameType();
+        this.version = version;
+        this.delta = delta;
+    }
+
+    /**
+     * Constructor of a {@link HydraServerUpdatedEvent}
+     *
+     * @param server The updated server
+     * @param version The version of the server after the update
+     */
+    public HydraServerUpdatedEvent(HydraServer server, long version) {
+        this(server, version, null);
+    }
+
     /**
      * Constructor of a {@link HydraServerUpdatedEvent}
      *
      * @param server The updated server
      */
     public HydraServerUpdatedEvent(HydraServer server) {
-        this.server = server;
+        this(server, 0);
     }
 
     /**
@@ -32,4 +78,41 @@ public class HydraServerUpdatedEvent extends HydraEvent {
         return this.server;
     }
 
+    /**
+     * Get the name of the updated server
+     *
+     * @return A server name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the version of the server after the update
+     *
+     * @return A version number
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Get the changes since the previous version of the server
+     *
+     * @return A {@link HydraDelta}; or <code>null</code> if the full server was sent
+     */
+    public HydraDelta getDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Get the topic of the event: the type of the server, then its type of game
+     *
+     * @return A list of topic parts
+     */
+    @Override
+    public List<String> getTopic() {
+        return Arrays.asList(this.type, this.gameType);
+    }
+
 }
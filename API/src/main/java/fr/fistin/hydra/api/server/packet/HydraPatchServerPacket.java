@@ -0,0 +1,212 @@
+package fr.fistin.hydra.api.server.packet;
+
+import fr.fistin.hydra.api.protocol.data.HydraData;
+import fr.fistin.hydra.api.protocol.packet.HydraPacket;
+import fr.fistin.hydra.api.server.HydraServer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Packet used to only update some information of a server in cache by asking Hydra.<br>
+ * The fields that are not set are left unchanged.<br>
+ * Warning: Only the concerned server can update its information!
+ */
+public class HydraPatchServerPacket extends HydraPacket {
+
+    /** The name of the server to update */
+    private final String name;
+
+    /** The new state of the server */
+    private HydraServer.State state;
+    /** The new map of the server */
+    private String map;
+    /** The new accessibility of the server */
+    private HydraServer.Accessibility accessibility;
+    /** The new slots of the server */
+    private Integer slots;
+    /** The new data of the server */
+    private HydraData data;
+
+    /** The players that joined the server */
+    private Set<UUID> addedPlayers;
+    /** The players that left the server */
+    private Set<UUID> removedPlayers;
+
+    /**
+     * Default constructor of a {@link HydraPatchServerPacket}
+     *
+     * @param name The name of the server to update
+     */
+    public HydraPatchServerPacket(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the server to update
+     *
+     * @return A server name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the new state of the server
+     *
+     * @return A {@link HydraServer.State}; or <code>null</code> if it's unchanged
+     */
+    public HydraServer.State getState() {
+        return this.state;
+    }
+
+    /**
+     * Set the new state of the server
+     *
+     * @param state The new state
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withState(HydraServer.State state) {
+        this.state = state;
+        return this;
+    }
+
+    /**
+     * Get the new map of the server
+     *
+     * @return A map name; or <code>null</code> if it's unchanged
+     */
+    public String getMap() {
+        return this.map;
+    }
+
+    /**
+     * Set the new map of the server
+     *
+     * @param map The new map
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withMap(String map) {
+        this.map = map;
+        return this;
+    }
+
+    /**
+     * Get the new accessibility of the server
+     *
+     * @return A {@link HydraServer.Accessibility}; or <code>null</code> if it's unchanged
+     */
+    public HydraServer.Accessibility getAccessibility() {
+        return this.accessibility;
+    }
+
+    /**
+     * Set the new accessibility of the server
+     *
+     * @param accessibility The new accessibility
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withAccessibility(HydraServer.Accessibility accessibility) {
+        this.accessibility = accessibility;
+        return this;
+    }
+
+    /**
+     * Get the new slots of the server
+     *
+     * @return An amount of slots; or <code>null</code> if it's unchanged
+     */
+    public Integer getSlots() {
+        return this.slots;
+    }
+
+    /**
+     * Set the new slots of the server
+     *
+     * @param slots The new amount of slots
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withSlots(int slots) {
+        this.slots = slots;
+        return this;
+    }
+
+    /**
+     * Get the new data of the server
+     *
+     * @return A {@link HydraData}; or <code>null</code> if it's unchanged
+     */
+    public HydraData getData() {
+        return this.data;
+    }
+
+    /**
+     * Set the new data of the server
+     *
+     * @param data The new data
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withData(HydraData data) {
+        this.data = data;
+        return this;
+    }
+
+    /**
+     * Get the players that joined the server
+     *
+     * @return A set of player {@link UUID}; or <code>null</code> if no player joined
+     */
+    public Set<UUID> getAddedPlayers() {
+        return this.addedPlayers;
+    }
+
+    /**
+     * Add players that joined the server
+     *
+     * @param players The players that joined
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withAddedPlayers(UUID... players) {
+        if (this.addedPlayers == null) {
+            this.addedPlayers = new HashSet<>();
+        }
+
+        this.addedPlayers.addAll(Arrays.asList(players));
+
+        if (this.removedPlayers != null) {
+            Arrays.asList(players).forEach(this.removedPlayers::remove);
+        }
+        return this;
+    }
+
+    /**
+     * Get the players that left the server
+     *
+     * @return A set of player {@link UUID}; or <code>null</code> if no player left
+     */
+    public Set<UUID> getRemovedPlayers() {
+        return this.removedPlayers;
+    }
+
+    /**
+     * Add players that left the server
+     *
+     * @param players The players that left
+     * @return This {@link HydraPatchServerPacket} instance
+     */
+    public HydraPatchServerPacket withRemovedPlayers(UUID... players) {
+        if (this.removedPlayers == null) {
+            this.removedPlayers = new HashSet<>();
+        }
+
+        this.removedPlayers.addAll(Arrays.asList(players));
+
+        if (this.addedPlayers != null) {
+            Arrays.asList(players).forEach(this.addedPlayers::remove);
+        }
+        return this;
+    }
+
+}
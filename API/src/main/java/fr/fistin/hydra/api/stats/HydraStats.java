@@ -0,0 +1,136 @@
+package fr.fistin.hydra.api.stats;
+
+import fr.fistin.hydra.api.HydraAPI;
+
+import java.util.Map;
+
+/**
+ * Represents the counters of the network: players and servers (globally, by type and by type of game) and proxies.<br>
+ * The counters are maintained by Hydra in the Redis hash hydra:stats, so they are read without loading any server.
+ * The players of the network are the players connected on the proxies.
+ */
+public class HydraStats {
+
+    /** The Redis hash storing the counters */
+    public static final String HASH = HydraAPI.HYDRA_HASH + "stats";
+
+    /** The fields of the global counters */
+    public static final String PLAYERS = "players";
+    public static final String SERVERS = "servers";
+    public static final String PROXIES = "proxies";
+
+    /** The counters, by field */
+    private final Map<String, String> counters;
+
+    /**
+     * Constructor of {@link HydraStats}
+     *
+     * @param counters The counters, by field
+     */
+    public HydraStats(Map<String, String> counters) {
+        this.counters = counters;
+    }
+
+    /**
+     * Get the amount of players connected on the network
+     *
+     * @return An amount of players
+     */
+    public long getPlayers() {
+        return this.get(PLAYERS);
+    }
+
+    /**
+     * Get the amount of players on the servers of a type
+     *
+     * @param type The type of the servers
+     * @return An amount of players
+     */
+    public long getPlayers(String type) {
+        return this.get(getField(PLAYERS, type, null));
+    }
+
+    /**
+     * Get the amount of players on the servers of a type of game
+     *
+     * @param type The type of the servers
+     * @param gameType The type of game of the servers
+     * @return An amount of players
+     */
+    public long getPlayers(String type, String gameType) {
+        return this.get(getField(PLAYERS, type, gameType));
+    }
+
+    /**
+     * Get the amount of servers on the network
+     *
+     * @return An amount of servers
+     */
+    public long getServers() {
+        return this.get(SERVERS);
+    }
+
+    /**
+     * Get the amount of servers of a type
+     *
+     * @param type The type of the servers
+     * @return An amount of servers
+     */
+    public long getServers(String type) {
+        return this.get(getField(SERVERS, type, null));
+    }
+
+    /**
+     * Get the amount of servers of a type of game
+     *
+     * @param type The type of the servers
+     * @param gameType The type of game of the servers
+     * @return An amount of servers
+     */
+    public long getServers(String type, String gameType) {
+        return this.get(getField(SERVERS, type, gameType));
+    }
+
+    /**
+     * Get the amount of proxies on the network
+     *
+     * @return An amount of proxies
+     */
+    public long getProxies() {
+        return this.get(PROXIES);
+    }
+
+    /**
+     * Get all the counters
+     *
+     * @return The counters, by field
+     */
+    public Map<String, String> getCounters() {
+        return this.counters;
+    }
+
+    /**
+     * Get a counter
+     *
+     * @param field The field of the counter
+     * @return The value of the counter (0 if it doesn't exist)
+     */
+    private long get(String field) {
+        final String value = this.counters.get(field);
+
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * Get the field of a counter by type (and type of game) of servers
+     *
+     * @param counter The counter ({@link #PLAYERS} or {@link #SERVERS})
+     * @param type The type of the servers
+     * @param gameType The type of game of the servers; or <code>null</code> to count all the servers of the type
+     * @return A field of the stats hash (e.g. players:bedwars:solo)
+     */
+    public static String getField(String counter, String type, String gameType) {
+        return counter + ":" + type + (gameType == null ? "" : ":" + gameType);
+    }
+
+}
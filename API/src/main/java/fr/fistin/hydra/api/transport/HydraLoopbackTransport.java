@@ -0,0 +1,170 @@
+package fr.fistin.hydra.api.transport;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.redis.IHydraReceiver;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+/**
+ * An in-memory {@link IHydraTransport} implementation.<br>
+ * All the transports created with the same {@link Network} can talk together inside the same JVM, without Redis.<br>
+ * Each transport delivers its messages on its own thread, in the order they were published.
+ */
+public class HydraLoopbackTransport implements IHydraTransport {
+
+    /** The network the transport is connected to */
+    private final Network network;
+
+    /** The channels the transport is subscribed to */
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+    /** The patterns the transport is subscribed to */
+    private final Set<String> patterns = ConcurrentHashMap.newKeySet();
+
+    /** The receiver to forward the messages to */
+    private IHydraReceiver receiver;
+    /** The executor delivering the received messages */
+    private ExecutorService deliveryExecutor;
+
+    /**
+     * Constructor of {@link HydraLoopbackTransport}
+     *
+     * @param network The network to connect the transport to
+     */
+    public HydraLoopbackTransport(Network network) {
+        this.network = network;
+    }
+
+    @Override
+    public void start(IHydraReceiver receiver) {
+        this.receiver = receiver;
+        this.deliveryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Loopback Subscriber");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        this.network.transports.add(this);
+    }
+
+    @Override
+    public void stop() {
+        this.network.transports.remove(this);
+
+        if (this.deliveryExecutor != null) {
+            this.deliveryExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public void subscribe(String channel) {
+        this.channels.add(channel);
+    }
+
+    @Override
+    public void unsubscribe(String channel) {
+        this.channels.remove(channel);
+    }
+
+    @Override
+    public void psubscribe(String pattern) {
+        this.patterns.add(pattern);
+    }
+
+    @Override
+    public void punsubscribe(String pattern) {
+        this.patterns.remove(pattern);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        for (HydraLoopbackTransport transport : this.network.transports) {
+            if (transport.channels.contains(channel)) {
+                transport.deliver(channel, message);
+            }
+
+            for (String pattern : transport.patterns) {
+                if (matches(pattern, 0, channel, 0)) {
+                    transport.deliver(pattern, message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a channel matches a pattern (<code>*</code>, <code>?</code> and <code>\</code> escapes are supported)
+     *
+     * @param pattern The pattern
+     * @param patternIndex The index to start from in the pattern
+     * @param channel The channel
+     * @param channelIndex The index to start from in the channel
+     * @return <code>true</code> if the end of the channel matches the end of the pattern
+     */
+    private static boolean matches(String pattern, int patternIndex, String channel, int channelIndex) {
+        while (patternIndex < pattern.length()) {
+            final char c = pattern.charAt(patternIndex);
+
+            if (c == '*') {
+                for (int i = channelIndex; i <= channel.length(); i++) {
+                    if (matches(pattern, patternIndex + 1, channel, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            if (channelIndex >= channel.length()) {
+                return false;
+            }
+
+            if (c == '\\' && patternIndex + 1 < pattern.length()) {
+                // Escaped character: matched literally
+                if (pattern.charAt(++patternIndex) != channel.charAt(channelIndex)) {
+                    return false;
+                }
+            } else if (c != '?' && c != channel.charAt(channelIndex)) {
+                return false;
+            }
+
+            patternIndex++;
+            channelIndex++;
+        }
+        return channelIndex == channel.length();
+    }
+
+    /**
+     * Deliver a message published on the network to the receiver of this transport
+     *
+     * @param channel The channel of the message
+     * @param message The message to deliver
+     */
+    private void deliver(String channel, String message) {
+        try {
+            this.deliveryExecutor.execute(() -> {
+                try {
+                    this.receiver.receive(channel, message);
+                } catch (Exception e) {
+                    HydraAPI.log(Level.SEVERE, "An error occurred while delivering a loopback message on '" + channel + "'! Error: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // The transport has been stopped while the message was published
+        }
+    }
+
+    /**
+     * Represents a group of {@link HydraLoopbackTransport} that can send messages to each other
+     */
+    public static class Network {
+
+        /** The transports currently connected to the network */
+        private final Set<HydraLoopbackTransport> transports = ConcurrentHashMap.newKeySet();
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package fr.fistin.hydra.api.transport;
+
+import fr.fistin.hydra.api.redis.IHydraReceiver;
+
+/**
+ * Represents the layer used by {@link fr.fistin.hydra.api.redis.HydraPubSub} to send and receive raw messages.<br>
+ * The default implementation relies on Redis PubSub, but any other messaging system can be plugged.
+ */
+public interface IHydraTransport {
+
+    /**
+     * Start the transport.<br>
+     * Every message received on a subscribed channel must be forwarded to the given receiver.
+     *
+     * @param receiver The receiver to forward the messages to
+     */
+    void start(IHydraReceiver receiver);
+
+    /**
+     * Stop the transport.<br>
+     * No message will be forwarded after this call.
+     */
+    void stop();
+
+    /**
+     * Subscribe to a channel.<br>
+     * Subscriptions can be made before the transport is started, they will be applied once it's started.
+     *
+     * @param channel The channel to subscribe to
+     */
+    void subscribe(String channel);
+
+    /**
+     * Unsubscribe from a channel
+     *
+     * @param channel The channel to unsubscribe from
+     */
+    void unsubscribe(String channel);
+
+    /**
+     * Subscribe to all the channels matching a pattern.<br>
+     * Patterns use the Redis glob syntax: <code>*</code> matches any sequence of characters, <code>?</code> any single character,
+     * and <code>\</code> escapes the next character.<br>
+     * The messages received through a pattern are forwarded with the pattern instead of their channel.
+     *
+     * @param pattern The pattern of the channels to subscribe to
+     */
+    void psubscribe(String pattern);
+
+    /**
+     * Unsubscribe from the channels matching a pattern
+     *
+     * @param pattern The pattern to unsubscribe from
+     */
+    void punsubscribe(String pattern);
+
+    /**
+     * Publish a message on a given channel
+     *
+     * @param channel The channel to publish the message on
+     * @param message The message to publish
+     */
+    void publish(String channel, String message);
+
+}
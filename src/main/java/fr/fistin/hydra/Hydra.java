@@ -5,14 +5,19 @@ import fr.fistin.hydra.api.protocol.HydraChannel;
 import fr.fistin.hydra.api.protocol.HydraConnection;
 import fr.fistin.hydra.api.proxy.HydraProxyCreationInfo;
 import fr.fistin.hydra.config.HydraConfig;
+import fr.fistin.hydra.event.HydraEventCoalescer;
 import fr.fistin.hydra.heartbeat.HydraHeartbeatsChecker;
 import fr.fistin.hydra.kubernetes.Kubernetes;
+import fr.fistin.hydra.player.HydraPlayerManager;
 import fr.fistin.hydra.proxy.HydraProxyManager;
 import fr.fistin.hydra.receiver.HydraProxiesReceiver;
 import fr.fistin.hydra.receiver.HydraQueryReceiver;
 import fr.fistin.hydra.receiver.HydraServersReceiver;
+import fr.fistin.hydra.redis.HydraKeysMigration;
 import fr.fistin.hydra.redis.HydraRedis;
+import fr.fistin.hydra.server.HydraReservationsChecker;
 import fr.fistin.hydra.server.HydraServerManager;
+import fr.fistin.hydra.stats.HydraStatsManager;
 import fr.fistin.hydra.util.References;
 import fr.fistin.hydra.util.logger.HydraLogger;
 
@@ -35,8 +40,12 @@ public class Hydra {
     /** Hydra */
     private HydraConfig config;
     private HydraAPI api;
+    private HydraEventCoalescer eventCoalescer;
     private HydraProxyManager proxyManager;
     private HydraServerManager serverManager;
+    private HydraPlayerManager playerManager;
+    private HydraStatsManager statsManager;
+    private HydraHeartbeatsChecker heartbeatsChecker;
 
     /** State */
     private boolean running = false;
@@ -65,12 +74,22 @@ public class Hydra {
                 .withRedis(this.redis)
                 .build();
         this.api.start();
+        this.eventCoalescer = new HydraEventCoalescer(this);
+        this.statsManager = new HydraStatsManager(this);
         this.proxyManager = new HydraProxyManager(this);
         this.serverManager = new HydraServerManager(this);
+        this.playerManager = new HydraPlayerManager(this);
+
+        new HydraKeysMigration(this.redis, this.serverManager.getIndexer()).migrate();
+
+        this.heartbeatsChecker = new HydraHeartbeatsChecker(this.config.getHeartbeats());
+        this.serverManager.getIndexer().indexFreeSlots();
+        this.heartbeatsChecker.start();
 
         this.registerReceivers();
 
-        new HydraHeartbeatsChecker().start();
+        new HydraReservationsChecker().start();
+        this.statsManager.start();
 
         this.proxyManager.startProxy(new HydraProxyCreationInfo());
 
@@ -129,6 +148,10 @@ public class Hydra {
         return this.api;
     }
 
+    public HydraEventCoalescer getEventCoalescer() {
+        return this.eventCoalescer;
+    }
+
     public HydraProxyManager getProxyManager() {
         return this.proxyManager;
     }
@@ -137,4 +160,16 @@ public class Hydra {
         return this.serverManager;
     }
 
+    public HydraPlayerManager getPlayerManager() {
+        return this.playerManager;
+    }
+
+    public HydraStatsManager getStatsManager() {
+        return this.statsManager;
+    }
+
+    public HydraHeartbeatsChecker getHeartbeatsChecker() {
+        return this.heartbeatsChecker;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package fr.fistin.hydra.config;
+
+public class EventsConfig {
+
+    /** The time (in milliseconds) during which updated events of the same server/proxy are merged. 0 to disable it. */
+    private long updateCoalescingWindow = 100;
+
+    public EventsConfig() {}
+
+    public EventsConfig(long updateCoalescingWindow) {
+        this.updateCoalescingWindow = updateCoalescingWindow;
+    }
+
+    public long getUpdateCoalescingWindow() {
+        return this.updateCoalescingWindow;
+    }
+
+}
@@ -0,0 +1,56 @@
+package fr.fistin.hydra.config;
+
+public class HeartbeatsConfig {
+
+    /** The suspicion level (phi) from which a server/proxy is idle */
+    private double idleThreshold = 8.0D;
+    /** The suspicion level (phi) from which a server/proxy is stopped */
+    private double stopThreshold = 60.0D;
+    /** The amount of intervals between heartbeats remembered for each server/proxy */
+    private int maxSamples = 100;
+    /** The minimum standard deviation of the intervals (in milliseconds), so very regular heartbeats don't make the detection too sensitive */
+    private long minStdDeviation = 1500;
+    /** The pause between two heartbeats (in milliseconds) that is accepted on top of the usual interval (e.g. garbage collection) */
+    private long acceptablePause = 3000;
+    /** The interval (in milliseconds) expected before the first heartbeats of a server/proxy are received */
+    private long firstIntervalEstimate = 10000;
+
+    /**
+     * With the default values, a server/proxy sending regular heartbeats is idle about 21s after its last heartbeat, and stopped about 31s after it
+     */
+    public HeartbeatsConfig() {}
+
+    public HeartbeatsConfig(double idleThreshold, double stopThreshold, int maxSamples, long minStdDeviation, long acceptablePause, long firstIntervalEstimate) {
+        this.idleThreshold = idleThreshold;
+        this.stopThreshold = stopThreshold;
+        this.maxSamples = maxSamples;
+        this.minStdDeviation = minStdDeviation;
+        this.acceptablePause = acceptablePause;
+        this.firstIntervalEstimate = firstIntervalEstimate;
+    }
+
+    public double getIdleThreshold() {
+        return this.idleThreshold;
+    }
+
+    public double getStopThreshold() {
+        return this.stopThreshold;
+    }
+
+    public int getMaxSamples() {
+        return this.maxSamples;
+    }
+
+    public long getMinStdDeviation() {
+        return this.minStdDeviation;
+    }
+
+    public long getAcceptablePause() {
+        return this.acceptablePause;
+    }
+
+    public long getFirstIntervalEstimate() {
+        return this.firstIntervalEstimate;
+    }
+
+}
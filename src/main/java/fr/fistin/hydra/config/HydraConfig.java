@@ -18,12 +18,16 @@ public class HydraConfig {
 
     private RedisData redis;
     private KubernetesConfig kubernetes;
+    private EventsConfig events = new EventsConfig();
+    private HeartbeatsConfig heartbeats = new HeartbeatsConfig();
 
     private HydraConfig() {}
 
-    public HydraConfig(RedisData redis, KubernetesConfig kubernetes) {
+    public HydraConfig(RedisData redis, KubernetesConfig kubernetes, EventsConfig events, HeartbeatsConfig heartbeats) {
         this.redis = redis;
         this.kubernetes = kubernetes;
+        this.events = events;
+        this.heartbeats = heartbeats;
     }
 
     public RedisData getRedis() {
@@ -34,6 +38,14 @@ public class HydraConfig {
         return this.kubernetes;
     }
 
+    public EventsConfig getEvents() {
+        return this.events;
+    }
+
+    public HeartbeatsConfig getHeartbeats() {
+        return this.heartbeats;
+    }
+
     public static HydraConfig load() {
         System.out.println("Loading configuration...");
 
@@ -46,7 +58,7 @@ public class HydraConfig {
                 return mapper.readValue(file, HydraConfig.class);
             }
 
-            final HydraConfig config = new HydraConfig(new RedisData("localhost", 6379, ""), new KubernetesConfig("default"));
+            final HydraConfig config = new HydraConfig(new RedisData("localhost", 6379, ""), new KubernetesConfig("default"), new EventsConfig(), new HeartbeatsConfig());
 
             mapper.writeValue(file, config);
 
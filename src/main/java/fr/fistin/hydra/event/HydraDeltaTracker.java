@@ -0,0 +1,102 @@
+package fr.fistin.hydra.event;
+
+import com.google.gson.JsonObject;
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.protocol.data.HydraDelta;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last published version of each object (e.g. a server) to only publish the fields that changed.<br>
+ * The versions start from an epoch (the start time of Hydra in seconds since 2022, from the bit 31), so the versions published after a restart of Hydra
+ * are always higher than the ones published before it, and are not ignored by the registries of the API.
+ * The versions stay positive until 2158, and each object can have 2^31 versions before reaching the epoch of the next second.
+ */
+public class HydraDeltaTracker {
+
+    /** The time the epochs are counted from (2022-01-01T00:00:00Z, in seconds) */
+    private static final long EPOCH_OFFSET = 1640995200L;
+    /** The first version of the objects published by this instance of Hydra */
+    private static final long EPOCH = (System.currentTimeMillis() / 1000 - EPOCH_OFFSET) << 31;
+
+    /** The last published state of each object */
+    private final Map<String, Change> published = new ConcurrentHashMap<>();
+
+    /**
+     * Compute the changes of an object since its last published version.<br>
+     * The first version of an object is always published entirely.
+     *
+     * @param key The key of the object (e.g. the server name)
+     * @param object The current object
+     * @return The {@link Change} to publish; or <code>null</code> if nothing changed
+     */
+    public Change track(String key, Object object) {
+        final JsonObject json = HydraAPI.GSON.toJsonTree(object).getAsJsonObject();
+        final Change[] change = new Change[1];
+
+        this.published.compute(key, (k, previous) -> {
+            if (previous == null) {
+                return change[0] = new Change(EPOCH + 1, null, json);
+            }
+
+            final HydraDelta delta = HydraDelta.compute(previous.json, json);
+
+            if (delta.isEmpty()) {
+                return previous;
+            }
+            return change[0] = new Change(previous.version + 1, delta, json);
+        });
+        return change[0];
+    }
+
+    /**
+     * Forget an object (e.g. when the server is stopped)
+     *
+     * @param key The key of the object
+     */
+    public void forget(String key) {
+        this.published.remove(key);
+    }
+
+    /**
+     * A published version of an object: its version number, the changes since the previous version, and the full object
+     */
+    public static class Change {
+
+        /** The version of the object, higher than all the ones published before */
+        private final long version;
+        /** The changes since the previous version; or <code>null</code> if the object is published entirely */
+        private final HydraDelta delta;
+        /** The JSON representation of the object at this version, used to compute the next delta */
+        private final JsonObject json;
+
+        /**
+         * Constructor of a {@link Change}
+         *
+         * @param version The version of the object
+         * @param delta The changes since the previous version; or <code>null</code> if the object is published entirely
+         * @param json The JSON representation of the object at this version
+         */
+        public Change(long version, HydraDelta delta, JsonObject json) {
+            this.version = version;
+            this.delta = delta;
+            this.json = json;
+        }
+
+        public long getVersion() {
+            return this.version;
+        }
+
+        /**
+         * Get the changes since the previous version
+         *
+         * @return A {@link HydraDelta}; or <code>null</code> if the object must be published entirely
+         */
+        public HydraDelta getDelta() {
+            return this.delta;
+        }
+
+    }
+
+}
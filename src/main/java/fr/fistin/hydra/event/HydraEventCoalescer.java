@@ -0,0 +1,67 @@
+package fr.fistin.hydra.event;
+
+import fr.fistin.hydra.Hydra;
+import fr.fistin.hydra.api.event.HydraEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Merges the events published for the same key (e.g. a server) during a short window: only the latest one is published.
+ */
+public class HydraEventCoalescer {
+
+    /** The latest event waiting to be published for each key. Events are only built when published, so they can be computed against what was published before. */
+    private final Map<String, Supplier<HydraEvent>> pendingEvents = new ConcurrentHashMap<>();
+
+    private final long window;
+
+    private final Hydra hydra;
+
+    public HydraEventCoalescer(Hydra hydra) {
+        this.hydra = hydra;
+        this.window = hydra.getConfig().getEvents().getUpdateCoalescingWindow();
+    }
+
+    /**
+     * Publish an event at the end of the coalescing window, unless a newer event replaces it for the same key.
+     *
+     * @param key The key of the event (e.g. the server name)
+     * @param event The supplier of the event to publish. It can return <code>null</code> if there is nothing to publish anymore.
+     */
+    public void publish(String key, Supplier<HydraEvent> event) {
+        if (this.window <= 0) {
+            this.publish(event);
+            return;
+        }
+
+        if (this.pendingEvents.put(key, event) == null) {
+            this.hydra.getAPI().getExecutorService().schedule(() -> this.flush(key), this.window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Immediately publish the pending event of a key (if there is one).<br>
+     * Must be called before publishing an event that needs to be received after the pending one (e.g. a stopped event).
+     *
+     * @param key The key of the event to publish
+     */
+    public void flush(String key) {
+        final Supplier<HydraEvent> event = this.pendingEvents.remove(key);
+
+        if (event != null) {
+            this.publish(event);
+        }
+    }
+
+    private void publish(Supplier<HydraEvent> supplier) {
+        final HydraEvent event = supplier.get();
+
+        if (event != null) {
+            this.hydra.getAPI().getEventBus().publish(event);
+        }
+    }
+
+}
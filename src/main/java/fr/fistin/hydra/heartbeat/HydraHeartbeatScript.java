@@ -0,0 +1,95 @@
+package fr.fistin.hydra.heartbeat;
+
+import fr.fistin.hydra.api.redis.HydraRedisScript;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+
+/**
+ * Applies the state changes caused by the heartbeats on a server/proxy hash in one round trip.<br>
+ * A heartbeat updates the heartbeat time (in the hash and in the heartbeats sorted set), and can move the server/proxy to another state
+ * (e.g. from creating to starting). A server/proxy without heartbeats is made idle, its previous state is returned to restore it later.
+ * The previous state is also kept in the hash, so it can be restored after a restart of Hydra.
+ */
+public class HydraHeartbeatScript {
+
+    /** The field of the server/proxy hash storing its state before being idle */
+    public static final String PREVIOUS_STATE_FIELD = "previousState";
+
+    /** KEYS: the server/proxy hash, the heartbeats sorted set. ARGV: heartbeat time, heartbeat field, state field, from state, to state, name */
+    private static final HydraRedisScript SCRIPT = new HydraRedisScript(String.join("\n",
+            "if redis.call('EXISTS', KEYS[1]) == 0 then",
+            "  return -1",
+            "end",
+            "redis.call('HSET', KEYS[1], ARGV[2], ARGV[1])",
+            "redis.call('ZADD', KEYS[2], ARGV[1], ARGV[6])",
+            "if redis.call('HGET', KEYS[1], ARGV[3]) == ARGV[4] then",
+            "  redis.call('HSET', KEYS[1], ARGV[3], ARGV[5])",
+            "  return 1",
+            "end",
+            "return 0"));
+
+    /** KEYS: the server/proxy hash, the heartbeats sorted set. ARGV: last heartbeat time, heartbeat field, state field, idle state, name, previous state field. Returns the previous state */
+    private static final HydraRedisScript IDLE = new HydraRedisScript(String.join("\n",
+            "if redis.call('EXISTS', KEYS[1]) == 0 then",
+            "  return false",
+            "end",
+            "redis.call('HSET', KEYS[1], ARGV[2], ARGV[1])",
+            "redis.call('ZADD', KEYS[2], ARGV[1], ARGV[5])",
+            "local previous = redis.call('HGET', KEYS[1], ARGV[3])",
+            "if previous and previous ~= ARGV[4] then",
+            "  redis.call('HSET', KEYS[1], ARGV[6], previous)",
+            "end",
+            "redis.call('HSET', KEYS[1], ARGV[3], ARGV[4])",
+            "return previous"));
+
+    private HydraHeartbeatScript() {}
+
+    /**
+     * Apply a heartbeat, and move the server/proxy to another state if it's in the given one
+     *
+     * @param jedis The Redis connection
+     * @param key The hash of the server/proxy
+     * @param heartbeatsKey The heartbeats sorted set of the servers/proxies
+     * @param name The name of the server/proxy
+     * @param heartbeatField The field of the heartbeat time
+     * @param stateField The field of the state
+     * @param from The name of the state to leave (e.g. creating)
+     * @param to The name of the state to move to (e.g. starting)
+     * @return The {@link Result} of the heartbeat
+     */
+    public static Result apply(Jedis jedis, String key, String heartbeatsKey, String name, String heartbeatField, String stateField, String from, String to) {
+        final long result = (Long) SCRIPT.eval(jedis, Arrays.asList(key, heartbeatsKey), Arrays.asList(String.valueOf(System.currentTimeMillis()), heartbeatField, stateField, from, to, name));
+
+        return result == -1 ? Result.UNKNOWN : result == 1 ? Result.MOVED : Result.ALIVE;
+    }
+
+    /**
+     * Make a server/proxy idle, and write its last heartbeat
+     *
+     * @param jedis The Redis connection
+     * @param key The hash of the server/proxy
+     * @param heartbeatsKey The heartbeats sorted set of the servers/proxies
+     * @param name The name of the server/proxy
+     * @param heartbeatField The field of the heartbeat time
+     * @param stateField The field of the state
+     * @param idle The name of the idle state
+     * @param lastHeartbeat The time of the last heartbeat
+     * @return The state of the server/proxy before being idle; or <code>null</code> if it doesn't exist
+     */
+    public static String idle(Jedis jedis, String key, String heartbeatsKey, String name, String heartbeatField, String stateField, String idle, long lastHeartbeat) {
+        return (String) IDLE.eval(jedis, Arrays.asList(key, heartbeatsKey), Arrays.asList(String.valueOf(lastHeartbeat), heartbeatField, stateField, idle, name, PREVIOUS_STATE_FIELD));
+    }
+
+    public enum Result {
+
+        /** The server/proxy doesn't exist */
+        UNKNOWN,
+        /** The heartbeat time was updated */
+        ALIVE,
+        /** The heartbeat time was updated, and the server/proxy moved to the new state */
+        MOVED
+
+    }
+
+}
@@ -2,64 +2,163 @@ package fr.fistin.hydra.heartbeat;
 
 import fr.fistin.hydra.Hydra;
 import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.proxy.HydraProxiesService;
 import fr.fistin.hydra.api.proxy.HydraProxy;
+import fr.fistin.hydra.api.proxy.HydraProxyRecord;
 import fr.fistin.hydra.api.server.HydraServer;
-
+import fr.fistin.hydra.api.server.HydraServerRecord;
+import fr.fistin.hydra.api.server.HydraServersService;
+import fr.fistin.hydra.config.HeartbeatsConfig;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Created by AstFaster
  * on 02/11/2022 at 12:35
+ *
+ * The heartbeats are only kept in memory ({@link HydraLivenessTable}), Redis is written when the state of a server/proxy changes.<br>
+ * The sorted sets store the servers/proxies sending heartbeats, with their last persisted heartbeat.
+ * They are loaded on start, so the servers/proxies that died while Hydra was down are still stopped, and the idle ones are still recovered.
  */
 public class HydraHeartbeatsChecker {
 
-    public static final long IDLE_TIME = 20 * 1000;
-    public static final long MAX_IDLE_TIME = 30 * 1000;
+    /** The sorted set of the servers, scored by the time of their last persisted heartbeat */
+    public static final String SERVERS_KEY = HydraAPI.HYDRA_HASH + "heartbeats:servers";
+    /** The sorted set of the proxies, scored by the time of their last persisted heartbeat */
+    public static final String PROXIES_KEY = HydraAPI.HYDRA_HASH + "heartbeats:proxies";
+
+    /** The delay between two checks (in milliseconds). The checks are done in memory, so they can be frequent */
+    private static final long CHECK_DELAY = 1000;
+
+    private final HydraLivenessTable servers;
+    private final HydraLivenessTable proxies;
+    private final HydraLoadTable loads = new HydraLoadTable();
+
+    public HydraHeartbeatsChecker(HeartbeatsConfig config) {
+        this.servers = new HydraLivenessTable(config);
+        this.proxies = new HydraLivenessTable(config);
+    }
 
     public void start() {
-        Hydra.get().getAPI().getExecutorService().scheduleAtFixedRate(this::check, 0, 10, TimeUnit.SECONDS);
+        // Give the known servers/proxies a full delay to send a heartbeat
+        Hydra.get().getRedis().process(jedis -> {
+            this.load(jedis, this.servers, SERVERS_KEY, HydraServersService::getKey, HydraServerRecord.STATE, HydraServer.State.IDLE.name(), HydraServer.State.READY.name());
+            this.load(jedis, this.proxies, PROXIES_KEY, HydraProxiesService::getKey, HydraProxyRecord.STATE, HydraProxy.State.IDLE.name(), HydraProxy.State.READY.name());
+        });
+
+        Hydra.get().getAPI().getExecutorService().scheduleAtFixedRate(this::check, 0, CHECK_DELAY, TimeUnit.MILLISECONDS);
     }
 
-    private void check() {
-        final HydraAPI hydraAPI = Hydra.get().getAPI();
+    /**
+     * Load the servers/proxies sending heartbeats in a liveness table.<br>
+     * The idle ones are loaded as idle, so their state is restored once they send heartbeats again.
+     *
+     * @param jedis The Redis connection
+     * @param liveness The liveness table to fill
+     * @param heartbeatsKey The heartbeats sorted set of the servers/proxies
+     * @param keyFunction The function giving the hash of a server/proxy
+     * @param stateField The field of the state
+     * @param idleState The name of the idle state
+     * @param defaultState The state to restore if the one before being idle is unknown
+     */
+    private void load(Jedis jedis, HydraLivenessTable liveness, String heartbeatsKey, Function<String, String> keyFunction, String stateField, String idleState, String defaultState) {
+        final List<String> names = jedis.zrange(heartbeatsKey, 0, -1);
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<List<String>>> responses = new ArrayList<>(names.size());
+
+        for (String name : names) {
+            responses.add(pipeline.hmget(keyFunction.apply(name), stateField, HydraHeartbeatScript.PREVIOUS_STATE_FIELD));
+        }
 
-        for (HydraServer server : hydraAPI.getServersService().getServers()) {
-            if (server.getState() == HydraServer.State.CREATING) {
-                continue;
+        pipeline.sync();
+
+        for (int i = 0; i < names.size(); i++) {
+            final String name = names.get(i);
+            final List<String> fields = responses.get(i).get();
+
+            if (idleState.equals(fields.get(0))) {
+                final String previousState = fields.get(1);
+
+                liveness.addIdle(name, previousState != null && !previousState.equals(idleState) ? previousState : defaultState);
+            } else {
+                liveness.add(name);
             }
+        }
+    }
 
-            final String serverName = server.getName();
-            final long elapsedTime = System.currentTimeMillis() - server.getLastHeartbeat();
+    private void check() {
+        final Hydra hydra = Hydra.get();
+        final List<HydraLivenessTable.Entry> idle = new ArrayList<>();
+        final List<HydraLivenessTable.Entry> dead = new ArrayList<>();
 
-            if (elapsedTime >= MAX_IDLE_TIME) {
-                System.out.println("'" + serverName + "' didn't send a heartbeat for more than 30s! Stopping it...");
+        this.servers.check(idle, dead);
 
-                Hydra.get().getServerManager().stopServer(serverName);
-            } else if (elapsedTime >= IDLE_TIME) {
-                server.setState(HydraServer.State.IDLE);
+        for (HydraLivenessTable.Entry entry : idle) {
+            final String serverName = entry.getName();
 
-                Hydra.get().getServerManager().updateServer(server);
-            }
+            hydra.getServerManager().idle(serverName, this.getLastHeartbeat(entry));
         }
 
-        for (HydraProxy proxy : hydraAPI.getProxiesService().getProxies()) {
-            if (proxy.getState() == HydraProxy.State.CREATING) {
-                continue;
+        for (HydraLivenessTable.Entry entry : dead) {
+            final String serverName = entry.getName();
+
+            System.out.println("'" + serverName + "' didn't send a heartbeat for " + entry.getElapsedTime() / 1000 + "s (phi: " + String.format("%.1f", entry.getPhi()) + ")! Stopping it...");
+
+            if (!hydra.getServerManager().stopServer(serverName)) {
+                // The server doesn't exist anymore
+                hydra.getRedis().process(jedis -> jedis.zrem(SERVERS_KEY, serverName));
             }
+        }
+
+        idle.clear();
+        dead.clear();
 
-            final String proxyName = proxy.getName();
-            final long elapsedTime = System.currentTimeMillis() - proxy.getLastHeartbeat();
+        this.proxies.check(idle, dead);
 
-            if (elapsedTime >= MAX_IDLE_TIME) {
-                System.out.println("'" + proxyName + "' didn't send a heartbeat for more than 30s! Stopping it...");
+        for (HydraLivenessTable.Entry entry : idle) {
+            final String proxyName = entry.getName();
 
-                Hydra.get().getProxyManager().stopProxy(proxyName);
-            } else if (elapsedTime >= IDLE_TIME) {
-                proxy.setState(HydraProxy.State.IDLE);
+            hydra.getProxyManager().idle(proxyName, this.getLastHeartbeat(entry));
+        }
+
+        for (HydraLivenessTable.Entry entry : dead) {
+            final String proxyName = entry.getName();
 
-                Hydra.get().getProxyManager().updateProxy(proxy);
+            System.out.println("'" + proxyName + "' didn't send a heartbeat for " + entry.getElapsedTime() / 1000 + "s (phi: " + String.format("%.1f", entry.getPhi()) + ")! Stopping it...");
+
+            if (!hydra.getProxyManager().stopProxy(proxyName)) {
+                // The proxy doesn't exist anymore
+                hydra.getRedis().process(jedis -> jedis.zrem(PROXIES_KEY, proxyName));
             }
         }
     }
 
+    /**
+     * Get the time of the last heartbeat of a server/proxy
+     *
+     * @param entry The server/proxy
+     * @return A time in milliseconds
+     */
+    private long getLastHeartbeat(HydraLivenessTable.Entry entry) {
+        return System.currentTimeMillis() - entry.getElapsedTime();
+    }
+
+    public HydraLivenessTable getServers() {
+        return this.servers;
+    }
+
+    public HydraLivenessTable getProxies() {
+        return this.proxies;
+    }
+
+    public HydraLoadTable getLoads() {
+        return this.loads;
+    }
+
 }
@@ -0,0 +1,354 @@
+package fr.fistin.hydra.heartbeat;
+
+import fr.fistin.hydra.config.HeartbeatsConfig;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the time of the last heartbeat of each server/proxy in memory.<br>
+ * Each name gets a slot in primitive arrays, so a heartbeat only updates a few numbers and nothing is written to Redis.<br>
+ * The liveness of each server/proxy is a phi-accrual suspicion level, computed from the distribution of its last intervals between heartbeats:
+ * phi = -log10(probability that the next heartbeat is still to come). Irregular servers/proxies are given more time, regular ones are detected faster.
+ */
+public class HydraLivenessTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The slot of each name */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /** The name in each slot (<code>null</code> if the slot is free) */
+    private String[] names = new String[INITIAL_CAPACITY];
+    /** The last heartbeat in each slot ({@link System#nanoTime()}) */
+    private long[] lastSeen = new long[INITIAL_CAPACITY];
+    /** Whether the server/proxy in each slot is known as idle */
+    private boolean[] idle = new boolean[INITIAL_CAPACITY];
+    /** The state of the server/proxy in each slot before it was idle */
+    private String[] previousStates = new String[INITIAL_CAPACITY];
+
+    /** The last intervals between heartbeats of each slot (in milliseconds), <code>maxSamples</code> per slot */
+    private long[] intervals;
+    /** The amount of intervals of each slot */
+    private int[] sampleCounts = new int[INITIAL_CAPACITY];
+    /** The index of the next interval of each slot */
+    private int[] sampleIndexes = new int[INITIAL_CAPACITY];
+    /** The sum of the intervals of each slot */
+    private double[] sums = new double[INITIAL_CAPACITY];
+    /** The sum of the squared intervals of each slot */
+    private double[] squaredSums = new double[INITIAL_CAPACITY];
+
+    /** The free slots */
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    /** The amount of slots ever used */
+    private int used;
+
+    private final HeartbeatsConfig config;
+    private final int maxSamples;
+
+    public HydraLivenessTable(HeartbeatsConfig config) {
+        this.config = config;
+        this.maxSamples = Math.max(2, config.getMaxSamples());
+        this.intervals = new long[INITIAL_CAPACITY * this.maxSamples];
+    }
+
+    /**
+     * Update the last heartbeat of a known server/proxy
+     *
+     * @param name The name of the server/proxy
+     * @return The {@link Beat} result
+     */
+    public synchronized Beat beat(String name) {
+        final Integer slot = this.slots.get(name);
+
+        if (slot == null) {
+            return Beat.UNKNOWN;
+        }
+
+        final long now = System.nanoTime();
+
+        this.addInterval(slot, (now - this.lastSeen[slot]) / 1_000_000);
+        this.lastSeen[slot] = now;
+
+        if (this.idle[slot]) {
+            this.idle[slot] = false;
+            return Beat.RECOVERED;
+        }
+        return Beat.ALIVE;
+    }
+
+    /**
+     * Add a server/proxy to the table (or update its last heartbeat if it's already known)
+     *
+     * @param name The name of the server/proxy
+     */
+    public synchronized void add(String name) {
+        Integer slot = this.slots.get(name);
+
+        if (slot != null) {
+            final long now = System.nanoTime();
+
+            this.addInterval(slot, (now - this.lastSeen[slot]) / 1_000_000);
+            this.lastSeen[slot] = now;
+            return;
+        }
+
+        slot = this.freeCount > 0 ? this.freeSlots[--this.freeCount] : this.nextSlot();
+
+        this.slots.put(name, slot);
+        this.names[slot] = name;
+        this.idle[slot] = false;
+        this.previousStates[slot] = null;
+        this.lastSeen[slot] = System.nanoTime();
+        this.sampleCounts[slot] = 0;
+        this.sampleIndexes[slot] = 0;
+        this.sums[slot] = 0;
+        this.squaredSums[slot] = 0;
+
+        // No interval is known yet: start with a wide distribution around the expected interval
+        final long estimate = this.config.getFirstIntervalEstimate();
+        final long deviation = estimate / 4;
+
+        this.addInterval(slot, estimate - deviation);
+        this.addInterval(slot, estimate + deviation);
+    }
+
+    /**
+     * Add a server/proxy that is already idle to the table (e.g. when loaded after a restart).<br>
+     * Its next heartbeat is {@link Beat#RECOVERED}, so its previous state is restored.
+     *
+     * @param name The name of the server/proxy
+     * @param previousState The state of the server/proxy before it was idle
+     */
+    public synchronized void addIdle(String name, String previousState) {
+        this.add(name);
+
+        final int slot = this.slots.get(name);
+
+        this.idle[slot] = true;
+        this.previousStates[slot] = previousState;
+    }
+
+    /**
+     * Remove a server/proxy from the table
+     *
+     * @param name The name of the server/proxy
+     */
+    public synchronized void remove(String name) {
+        final Integer slot = this.slots.remove(name);
+
+        if (slot == null) {
+            return;
+        }
+
+        this.names[slot] = null;
+        this.previousStates[slot] = null;
+
+        if (this.freeCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(INITIAL_CAPACITY, this.freeSlots.length * 2));
+        }
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
+    /**
+     * Check whether a server/proxy is known as idle (no heartbeat was received since it became idle)
+     *
+     * @param name The name of the server/proxy
+     * @return <code>true</code> if the server/proxy is idle
+     */
+    public synchronized boolean isIdle(String name) {
+        final Integer slot = this.slots.get(name);
+
+        return slot != null && this.idle[slot];
+    }
+
+    /**
+     * Remember the state of a server/proxy before it was idle, to restore it once it sends heartbeats again
+     *
+     * @param name The name of the server/proxy
+     * @param state The previous state
+     */
+    public synchronized void setPreviousState(String name, String state) {
+        final Integer slot = this.slots.get(name);
+
+        if (slot != null) {
+            this.previousStates[slot] = state;
+        }
+    }
+
+    /**
+     * Get and forget the state of a server/proxy before it was idle
+     *
+     * @param name The name of the server/proxy
+     * @return The previous state; or <code>null</code> if it's unknown
+     */
+    public synchronized String takePreviousState(String name) {
+        final Integer slot = this.slots.get(name);
+
+        if (slot == null) {
+            return null;
+        }
+
+        final String state = this.previousStates[slot];
+
+        this.previousStates[slot] = null;
+
+        return state;
+    }
+
+    /**
+     * Find the servers/proxies that became idle, and the ones that must be stopped (according to the thresholds of the config).<br>
+     * The idle ones are marked, so they are only returned once; the dead ones are removed from the table.
+     *
+     * @param newIdle The list filled with the servers/proxies that just became idle
+     * @param dead The list filled with the servers/proxies to stop
+     */
+    public synchronized void check(List<Entry> newIdle, List<Entry> dead) {
+        final long now = System.nanoTime();
+
+        for (int slot = 0; slot < this.used; slot++) {
+            final String name = this.names[slot];
+
+            if (name == null) {
+                continue;
+            }
+
+            final long elapsedTime = (now - this.lastSeen[slot]) / 1_000_000;
+            final double phi = this.phi(slot, elapsedTime);
+
+            if (phi >= this.config.getStopThreshold()) {
+                dead.add(new Entry(name, elapsedTime, phi));
+            } else if (phi >= this.config.getIdleThreshold() && !this.idle[slot]) {
+                this.idle[slot] = true;
+
+                newIdle.add(new Entry(name, elapsedTime, phi));
+            }
+        }
+
+        for (Entry entry : dead) {
+            this.remove(entry.getName());
+        }
+    }
+
+    /**
+     * Compute the suspicion level of a slot
+     *
+     * @param slot The slot
+     * @param elapsedTime The time since the last heartbeat (in milliseconds)
+     * @return The phi value
+     */
+    private double phi(int slot, long elapsedTime) {
+        final int count = this.sampleCounts[slot];
+        final double mean = this.sums[slot] / count;
+        final double variance = Math.max(0, this.squaredSums[slot] / count - mean * mean);
+        final double stdDeviation = Math.max(Math.sqrt(variance), this.config.getMinStdDeviation());
+
+        return phi(elapsedTime, mean + this.config.getAcceptablePause(), stdDeviation);
+    }
+
+    /**
+     * Compute a phi value, with a logistic approximation of the normal distribution
+     *
+     * @param elapsedTime The time since the last heartbeat
+     * @param mean The mean interval between heartbeats
+     * @param stdDeviation The standard deviation of the intervals
+     * @return The phi value
+     */
+    private static double phi(long elapsedTime, double mean, double stdDeviation) {
+        final double y = (elapsedTime - mean) / stdDeviation;
+        final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+
+        if (elapsedTime > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    private void addInterval(int slot, long interval) {
+        final int index = slot * this.maxSamples + this.sampleIndexes[slot];
+
+        if (this.sampleCounts[slot] == this.maxSamples) {
+            final long oldest = this.intervals[index];
+
+            this.sums[slot] -= oldest;
+            this.squaredSums[slot] -= (double) oldest * oldest;
+        } else {
+            this.sampleCounts[slot]++;
+        }
+
+        this.intervals[index] = interval;
+        this.sums[slot] += interval;
+        this.squaredSums[slot] += (double) interval * interval;
+        this.sampleIndexes[slot] = (this.sampleIndexes[slot] + 1) % this.maxSamples;
+    }
+
+    private int nextSlot() {
+        if (this.used == this.names.length) {
+            final int capacity = this.names.length * 2;
+
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.lastSeen = Arrays.copyOf(this.lastSeen, capacity);
+            this.idle = Arrays.copyOf(this.idle, capacity);
+            this.previousStates = Arrays.copyOf(this.previousStates, capacity);
+            this.intervals = Arrays.copyOf(this.intervals, capacity * this.maxSamples);
+            this.sampleCounts = Arrays.copyOf(this.sampleCounts, capacity);
+            this.sampleIndexes = Arrays.copyOf(this.sampleIndexes, capacity);
+            this.sums = Arrays.copyOf(this.sums, capacity);
+            this.squaredSums = Arrays.copyOf(this.squaredSums, capacity);
+        }
+        return this.used++;
+    }
+
+    /** The result of a heartbeat */
+    public enum Beat {
+
+        /** The server/proxy is not in the table */
+        UNKNOWN,
+        /** The server/proxy is alive */
+        ALIVE,
+        /** The server/proxy was idle, and sent a heartbeat again */
+        RECOVERED
+
+    }
+
+    /** A server/proxy found by {@link #check(List, List)} */
+    public static class Entry {
+
+        private final String name;
+        private final long elapsedTime;
+        private final double phi;
+
+        public Entry(String name, long elapsedTime, double phi) {
+            this.name = name;
+            this.elapsedTime = elapsedTime;
+            this.phi = phi;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Get the time since the last heartbeat
+         *
+         * @return A time in milliseconds
+         */
+        public long getElapsedTime() {
+            return this.elapsedTime;
+        }
+
+        /**
+         * Get the suspicion level of the server/proxy
+         *
+         * @return The phi value
+         */
+        public double getPhi() {
+            return this.phi;
+        }
+
+    }
+
+}
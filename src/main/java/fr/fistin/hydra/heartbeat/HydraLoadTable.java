@@ -0,0 +1,142 @@
+package fr.fistin.hydra.heartbeat;
+
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the last load metrics sent with the heartbeats of each server/proxy in memory.<br>
+ * Each name gets a slot in primitive ring buffers, a missing metric is stored as NaN (or -1).
+ */
+public class HydraLoadTable {
+
+    /** The amount of metrics kept for each server/proxy (5 minutes of heartbeats) */
+    public static final int SAMPLES = 30;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The slot of each name */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /** The amount of metrics of each slot */
+    private int[] counts = new int[INITIAL_CAPACITY];
+    /** The index of the next metrics of each slot */
+    private int[] indexes = new int[INITIAL_CAPACITY];
+
+    /** The metrics, {@link #SAMPLES} per slot */
+    private long[] times = new long[INITIAL_CAPACITY * SAMPLES];
+    private double[] tps = new double[INITIAL_CAPACITY * SAMPLES];
+    private double[] tickTimes = new double[INITIAL_CAPACITY * SAMPLES];
+    private long[] heapUsed = new long[INITIAL_CAPACITY * SAMPLES];
+    private long[] heapMax = new long[INITIAL_CAPACITY * SAMPLES];
+    private int[] players = new int[INITIAL_CAPACITY * SAMPLES];
+    private double[] cpu = new double[INITIAL_CAPACITY * SAMPLES];
+
+    /** The free slots */
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    /** The amount of slots ever used */
+    private int used;
+
+    /**
+     * Store the metrics sent with a heartbeat
+     *
+     * @param name The name of the server/proxy
+     * @param metrics The received metrics
+     */
+    public synchronized void record(String name, HydraLoadMetrics metrics) {
+        Integer slot = this.slots.get(name);
+
+        if (slot == null) {
+            slot = this.freeCount > 0 ? this.freeSlots[--this.freeCount] : this.nextSlot();
+
+            this.slots.put(name, slot);
+            this.counts[slot] = 0;
+            this.indexes[slot] = 0;
+        }
+
+        final int index = slot * SAMPLES + this.indexes[slot];
+
+        this.times[index] = System.currentTimeMillis();
+        this.tps[index] = metrics.getTps() != null ? metrics.getTps() : Double.NaN;
+        this.tickTimes[index] = metrics.getTickTime() != null ? metrics.getTickTime() : Double.NaN;
+        this.heapUsed[index] = metrics.getHeapUsed() != null ? metrics.getHeapUsed() : -1;
+        this.heapMax[index] = metrics.getHeapMax() != null ? metrics.getHeapMax() : -1;
+        this.players[index] = metrics.getPlayers() != null ? metrics.getPlayers() : -1;
+        this.cpu[index] = metrics.getCpu() != null ? metrics.getCpu() : Double.NaN;
+
+        this.indexes[slot] = (this.indexes[slot] + 1) % SAMPLES;
+        this.counts[slot] = Math.min(SAMPLES, this.counts[slot] + 1);
+    }
+
+    /**
+     * Get the last metrics of a server/proxy
+     *
+     * @param name The name of the server/proxy
+     * @return The metrics, from the oldest to the newest; or <code>null</code> if no metrics were received
+     */
+    public synchronized List<HydraLoadMetrics> get(String name) {
+        final Integer slot = this.slots.get(name);
+
+        if (slot == null) {
+            return null;
+        }
+
+        final int count = this.counts[slot];
+        final List<HydraLoadMetrics> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final int index = slot * SAMPLES + Math.floorMod(this.indexes[slot] - count + i, SAMPLES);
+
+            result.add(new HydraLoadMetrics()
+                    .withTime(this.times[index])
+                    .withTps(Double.isNaN(this.tps[index]) ? null : this.tps[index])
+                    .withTickTime(Double.isNaN(this.tickTimes[index]) ? null : this.tickTimes[index])
+                    .withHeapUsed(this.heapUsed[index] < 0 ? null : this.heapUsed[index])
+                    .withHeapMax(this.heapMax[index] < 0 ? null : this.heapMax[index])
+                    .withPlayers(this.players[index] < 0 ? null : this.players[index])
+                    .withCpu(Double.isNaN(this.cpu[index]) ? null : this.cpu[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Remove the metrics of a server/proxy
+     *
+     * @param name The name of the server/proxy
+     */
+    public synchronized void remove(String name) {
+        final Integer slot = this.slots.remove(name);
+
+        if (slot == null) {
+            return;
+        }
+
+        if (this.freeCount == this.freeSlots.length) {
+            this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(INITIAL_CAPACITY, this.freeSlots.length * 2));
+        }
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
+    private int nextSlot() {
+        if (this.used == this.counts.length) {
+            final int capacity = this.counts.length * 2;
+
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.indexes = Arrays.copyOf(this.indexes, capacity);
+            this.times = Arrays.copyOf(this.times, capacity * SAMPLES);
+            this.tps = Arrays.copyOf(this.tps, capacity * SAMPLES);
+            this.tickTimes = Arrays.copyOf(this.tickTimes, capacity * SAMPLES);
+            this.heapUsed = Arrays.copyOf(this.heapUsed, capacity * SAMPLES);
+            this.heapMax = Arrays.copyOf(this.heapMax, capacity * SAMPLES);
+            this.players = Arrays.copyOf(this.players, capacity * SAMPLES);
+            this.cpu = Arrays.copyOf(this.cpu, capacity * SAMPLES);
+        }
+        return this.used++;
+    }
+
+}
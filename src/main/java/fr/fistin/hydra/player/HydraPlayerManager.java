@@ -0,0 +1,228 @@
+package fr.fistin.hydra.player;
+
+import fr.fistin.hydra.Hydra;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Maintains the index of the players location: player -> server/proxy and server/proxy -> players.<br>
+ * The server/proxy -> players sets are also the players stored with each server and proxy.
+ */
+public class HydraPlayerManager {
+
+    private final Hydra hydra;
+
+    public HydraPlayerManager(Hydra hydra) {
+        this.hydra = hydra;
+    }
+
+    public synchronized void joinServer(String server, UUID player) {
+        final Move move = this.join(HydraPlayersService.SERVER_FIELD, HydraPlayersService.SERVERS_HASH, server, player);
+
+        if (move.previous != null) {
+            this.serverPlayersChanged(move.previous, move.left ? -1 : 0);
+        }
+        this.serverPlayersChanged(server, move.joined ? 1 : 0);
+    }
+
+    public synchronized void leaveServer(String server, UUID player) {
+        final boolean left = this.leave(HydraPlayersService.SERVER_FIELD, HydraPlayersService.SERVERS_HASH, server, player);
+
+        this.serverPlayersChanged(server, left ? -1 : 0);
+    }
+
+    public synchronized void joinProxy(String proxy, UUID player) {
+        final Move move = this.join(HydraPlayersService.PROXY_FIELD, HydraPlayersService.PROXIES_HASH, proxy, player);
+
+        if (move.previous != null) {
+            this.hydra.getProxyManager().publishUpdate(move.previous);
+        }
+        this.hydra.getProxyManager().publishUpdate(proxy);
+        this.hydra.getStatsManager().proxyPlayersChanged((move.joined ? 1 : 0) - (move.left ? 1 : 0));
+    }
+
+    public synchronized void leaveProxy(String proxy, UUID player) {
+        final boolean left = this.leave(HydraPlayersService.PROXY_FIELD, HydraPlayersService.PROXIES_HASH, proxy, player);
+
+        this.hydra.getProxyManager().publishUpdate(proxy);
+        this.hydra.getStatsManager().proxyPlayersChanged(left ? -1 : 0);
+    }
+
+    /**
+     * Apply the players reported with a full server update (e.g. by the plugins that don't send the join and leave packets)
+     *
+     * @param server The name of the server
+     * @param players The reported players; or <code>null</code> if they were not reported
+     */
+    public synchronized void syncServer(String server, Set<UUID> players) {
+        if (players == null) {
+            return;
+        }
+
+        final Set<UUID> current = this.getPlayers(HydraPlayersService.SERVERS_HASH, server);
+
+        for (UUID player : players) {
+            if (!current.contains(player)) {
+                this.joinServer(server, player);
+            }
+        }
+        for (UUID player : current) {
+            if (!players.contains(player)) {
+                this.leaveServer(server, player);
+            }
+        }
+    }
+
+    /**
+     * Apply the players reported with a full proxy update (e.g. by the plugins that don't send the join and leave packets)
+     *
+     * @param proxy The name of the proxy
+     * @param players The reported players; or <code>null</code> if they were not reported
+     */
+    public synchronized void syncProxy(String proxy, Set<UUID> players) {
+        if (players == null) {
+            return;
+        }
+
+        final Set<UUID> current = this.getPlayers(HydraPlayersService.PROXIES_HASH, proxy);
+
+        for (UUID player : players) {
+            if (!current.contains(player)) {
+                this.joinProxy(proxy, player);
+            }
+        }
+        for (UUID player : current) {
+            if (!players.contains(player)) {
+                this.leaveProxy(proxy, player);
+            }
+        }
+    }
+
+    /**
+     * Remove all the players of a stopped server from the index
+     *
+     * @param server The name of the server
+     */
+    public synchronized void clearServer(String server) {
+        final int players = this.clear(HydraPlayersService.SERVER_FIELD, HydraPlayersService.SERVERS_HASH, server);
+
+        this.hydra.getStatsManager().serverPlayersChanged(server, -players);
+    }
+
+    /**
+     * Remove all the players of a stopped proxy from the index
+     *
+     * @param proxy The name of the proxy
+     */
+    public synchronized void clearProxy(String proxy) {
+        final int players = this.clear(HydraPlayersService.PROXY_FIELD, HydraPlayersService.PROXIES_HASH, proxy);
+
+        this.hydra.getStatsManager().proxyPlayersChanged(-players);
+    }
+
+    private Set<UUID> getPlayers(String setsHash, String name) {
+        final Set<UUID> players = new HashSet<>();
+
+        for (String player : this.hydra.getRedis().get(jedis -> jedis.smembers(setsHash + name))) {
+            players.add(UUID.fromString(player));
+        }
+        return players;
+    }
+
+    private void serverPlayersChanged(String server, long delta) {
+        this.hydra.getServerManager().getIndexer().indexFreeSlots(server);
+        this.hydra.getServerManager().publishUpdate(server);
+        this.hydra.getStatsManager().serverPlayersChanged(server, delta);
+    }
+
+    /**
+     * Move a player to a server/proxy
+     *
+     * @return The {@link Move} of the player
+     */
+    private Move join(String field, String setsHash, String name, UUID player) {
+        return this.hydra.getRedis().get(jedis -> {
+            final String key = HydraPlayersService.HASH + player;
+            final String previous = jedis.hget(key, field);
+            final Pipeline pipeline = jedis.pipelined();
+
+            final boolean moved = previous != null && !previous.equals(name);
+
+            final Response<Long> left = moved ? pipeline.srem(setsHash + previous, player.toString()) : null;
+
+            pipeline.hset(key, field, name);
+
+            final Response<Long> joined = pipeline.sadd(setsHash + name, player.toString());
+
+            pipeline.sync();
+
+            return new Move(moved ? previous : null, left != null && left.get() > 0, joined.get() > 0);
+        });
+    }
+
+    private boolean leave(String field, String setsHash, String name, UUID player) {
+        return this.hydra.getRedis().get(jedis -> {
+            final String key = HydraPlayersService.HASH + player;
+            final boolean left = jedis.srem(setsHash + name, player.toString()) > 0;
+
+            // The player may already be on another server/proxy
+            if (name.equals(jedis.hget(key, field))) {
+                jedis.hdel(key, field);
+            }
+            return left;
+        });
+    }
+
+    private int clear(String field, String setsHash, String name) {
+        return this.hydra.getRedis().get(jedis -> {
+            final Set<String> players = jedis.smembers(setsHash + name);
+            final List<Response<String>> locations = new ArrayList<>();
+            Pipeline pipeline = jedis.pipelined();
+
+            for (String player : players) {
+                locations.add(pipeline.hget(HydraPlayersService.HASH + player, field));
+            }
+
+            pipeline.sync();
+            pipeline = jedis.pipelined();
+
+            int i = 0;
+            for (String player : players) {
+                if (name.equals(locations.get(i++).get())) {
+                    pipeline.hdel(HydraPlayersService.HASH + player, field);
+                }
+            }
+
+            pipeline.del(setsHash + name);
+            pipeline.sync();
+
+            return players.size();
+        });
+    }
+
+    /** The result of a player moving to a server/proxy */
+    private static class Move {
+
+        /** The previous server/proxy of the player (<code>null</code> if the player wasn't on another one) */
+        private final String previous;
+        /** Whether the player was removed from the previous server/proxy */
+        private final boolean left;
+        /** Whether the player was not already on the server/proxy */
+        private final boolean joined;
+
+        public Move(String previous, boolean left, boolean joined) {
+            this.previous = previous;
+            this.left = left;
+            this.joined = joined;
+        }
+
+    }
+
+}
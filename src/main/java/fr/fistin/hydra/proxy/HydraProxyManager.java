@@ -2,17 +2,30 @@ package fr.fistin.hydra.proxy;
 
 import fr.fistin.hydra.Hydra;
 import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadMetrics;
 import fr.fistin.hydra.api.proxy.HydraProxiesService;
 import fr.fistin.hydra.api.proxy.HydraProxy;
 import fr.fistin.hydra.api.proxy.HydraProxyCreationInfo;
+import fr.fistin.hydra.api.proxy.HydraProxyRecord;
 import fr.fistin.hydra.api.proxy.event.HydraProxyStartedEvent;
 import fr.fistin.hydra.api.proxy.event.HydraProxyStoppedEvent;
 import fr.fistin.hydra.api.proxy.event.HydraProxyUpdatedEvent;
+import fr.fistin.hydra.api.proxy.packet.HydraPatchProxyPacket;
+import fr.fistin.hydra.event.HydraDeltaTracker;
+import fr.fistin.hydra.heartbeat.HydraHeartbeatScript;
+import fr.fistin.hydra.heartbeat.HydraHeartbeatsChecker;
+import fr.fistin.hydra.heartbeat.HydraLivenessTable;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
 
 public class HydraProxyManager {
 
     private final HydraProxiesService proxiesService;
     private final HydraProxiesHandler handler;
+    private final HydraDeltaTracker deltaTracker;
+
+    /** Orders the idle transitions of the proxys and their recoveries */
+    private final Object livenessLock = new Object();
 
     private final Hydra hydra;
 
@@ -20,12 +33,16 @@ public class HydraProxyManager {
         this.hydra = hydra;
         this.proxiesService = this.hydra.getAPI().getProxiesService();
         this.handler = new HydraProxiesHandler();
+        this.deltaTracker = new HydraDeltaTracker();
     }
 
     public HydraProxy startProxy(HydraProxyCreationInfo proxyInfo) {
         final HydraProxy proxy = new HydraProxy(proxyInfo.getData(), 25577); // TODO Find a way to not expose port (by using HAProxy), so by using service name but dynamically and not statically
 
+        this.saveProxy(proxy);
+
         this.handler.startProxy(proxy);
+        this.hydra.getStatsManager().proxyStarted();
         this.hydra.getAPI().getEventBus().publish(new HydraProxyStartedEvent(proxy));
 
         System.out.println("Started " + proxy.getName() + " (port: " + proxy.getPort() + ").");
@@ -34,34 +51,204 @@ public class HydraProxyManager {
     }
 
     public boolean stopProxy(String name) {
-        final HydraProxy proxy = this.proxiesService.getProxy(name);
-
         this.handler.stopProxy(name);
 
-        if (proxy == null) {
+        if (!this.patchProxy(new HydraPatchProxyPacket(name).withState(HydraProxy.State.SHUTDOWN))) {
             System.err.println("Couldn't stop a proxy with the name: " + name + "!");
             return false;
         }
 
-        proxy.setState(HydraProxy.State.SHUTDOWN);
+        this.hydra.getEventCoalescer().flush(name);
+        this.deltaTracker.forget(name);
+        this.hydra.getHeartbeatsChecker().getProxies().remove(name);
+        this.hydra.getHeartbeatsChecker().getLoads().remove(name);
 
-        this.updateProxy(proxy);
+        final HydraProxy proxy = this.proxiesService.getProxy(name);
 
+        this.hydra.getPlayerManager().clearProxy(name);
+        this.hydra.getStatsManager().proxyStopped();
         this.hydra.getAPI().getEventBus().publish(new HydraProxyStoppedEvent(proxy));
-        this.hydra.getRedis().process(jedis -> jedis.del(HydraProxiesService.HASH + proxy.getName()));
+        this.hydra.getRedis().process(jedis -> {
+            final Pipeline pipeline = jedis.pipelined();
+
+            HydraProxyRecord.delete(pipeline, name);
+            pipeline.zrem(HydraHeartbeatsChecker.PROXIES_KEY, name);
+            pipeline.srem(HydraProxiesService.ALL_INDEX, name);
+            pipeline.sync();
+        });
 
-        System.out.println("Stopped '" + proxy.getName() + "'.");
+        System.out.println("Stopped '" + name + "'.");
 
         return true;
     }
 
     public void updateProxy(HydraProxy proxy) {
         this.saveProxy(proxy);
-        this.hydra.getAPI().getEventBus().publish(new HydraProxyUpdatedEvent(proxy));
+        // The record doesn't store the players anymore: the ones reported by older plugins are applied as joins and leaves
+        this.hydra.getPlayerManager().syncProxy(proxy.getName(), proxy.getPlayers());
+        this.publishUpdate(proxy.getName());
+    }
+
+    public boolean patchProxy(HydraPatchProxyPacket patch) {
+        final String name = patch.getName();
+        final String key = HydraProxiesService.getKey(name);
+
+        final boolean exists = this.hydra.getRedis().get(jedis -> {
+            // Don't create a partial proxy if it doesn't exist
+            jedis.watch(key);
+
+            if (!jedis.exists(key)) {
+                jedis.unwatch();
+                return false;
+            }
+
+            final Transaction transaction = jedis.multi();
+
+            if (patch.getState() != null) {
+                transaction.hset(key, HydraProxyRecord.STATE, patch.getState().name());
+            }
+            if (patch.getData() != null) {
+                transaction.set(HydraProxyRecord.DATA_HASH + name, HydraAPI.GSON.toJson(patch.getData()));
+            }
+            return transaction.exec() != null;
+        });
+
+        if (!exists) {
+            return false;
+        }
+
+        if (patch.getAddedPlayers() != null) {
+            patch.getAddedPlayers().forEach(player -> this.hydra.getPlayerManager().joinProxy(name, player));
+        }
+        if (patch.getRemovedPlayers() != null) {
+            patch.getRemovedPlayers().forEach(player -> this.hydra.getPlayerManager().leaveProxy(name, player));
+        }
+
+        this.publishUpdate(name);
+
+        return true;
+    }
+
+    public boolean heartbeat(String name, HydraLoadMetrics metrics) {
+        if (!this.heartbeat(name)) {
+            return false;
+        }
+
+        if (metrics != null) {
+            this.hydra.getHeartbeatsChecker().getLoads().record(name, metrics);
+        }
+        return true;
+    }
+
+    private boolean heartbeat(String name) {
+        final HydraLivenessTable liveness = this.hydra.getHeartbeatsChecker().getProxies();
+        final HydraLivenessTable.Beat beat = liveness.beat(name);
+
+        // Known proxy: the heartbeat is only kept in memory
+        if (beat == HydraLivenessTable.Beat.ALIVE) {
+            return true;
+        }
+        if (beat == HydraLivenessTable.Beat.RECOVERED) {
+            this.recover(name, liveness);
+            return true;
+        }
+
+        final HydraHeartbeatScript.Result result = this.hydra.getRedis().get(jedis -> HydraHeartbeatScript.apply(jedis, HydraProxiesService.getKey(name), HydraHeartbeatsChecker.PROXIES_KEY, name,
+                HydraProxyRecord.LAST_HEARTBEAT, HydraProxyRecord.STATE, HydraProxy.State.CREATING.name(), HydraProxy.State.STARTING.name()));
+
+        if (result == HydraHeartbeatScript.Result.MOVED) {
+            // First heartbeat of the proxy: it's now starting
+            this.publishUpdate(name);
+        }
+        if (result == HydraHeartbeatScript.Result.UNKNOWN) {
+            return false;
+        }
+
+        liveness.add(name);
+
+        return true;
+    }
+
+    /**
+     * Make a proxy idle after it stopped sending heartbeats
+     *
+     * @param name The name of the proxy
+     * @param lastHeartbeat The time of its last heartbeat
+     */
+    public void idle(String name, long lastHeartbeat) {
+        final HydraLivenessTable liveness = this.hydra.getHeartbeatsChecker().getProxies();
+
+        synchronized (this.livenessLock) {
+            // A heartbeat was received in the meantime
+            if (!liveness.isIdle(name)) {
+                return;
+            }
+
+            final String previousState = this.hydra.getRedis().get(jedis -> HydraHeartbeatScript.idle(jedis, HydraProxiesService.getKey(name), HydraHeartbeatsChecker.PROXIES_KEY, name,
+                    HydraProxyRecord.LAST_HEARTBEAT, HydraProxyRecord.STATE, HydraProxy.State.IDLE.name(), lastHeartbeat));
+
+            if (previousState == null) {
+                return;
+            }
+
+            liveness.setPreviousState(name, previousState);
+            this.publishUpdate(name);
+        }
+    }
+
+    /**
+     * Restore the state of a proxy that was idle and sends heartbeats again
+     *
+     * @param name The name of the proxy
+     * @param liveness The liveness table of the proxys
+     */
+    private void recover(String name, HydraLivenessTable liveness) {
+        synchronized (this.livenessLock) {
+            // Unknown if the proxy recovered before being made idle in Redis: only its heartbeat is written then
+            final String previousState = liveness.takePreviousState(name);
+            final String state = previousState != null ? previousState : HydraProxy.State.IDLE.name();
+            final HydraHeartbeatScript.Result result = this.hydra.getRedis().get(jedis -> HydraHeartbeatScript.apply(jedis, HydraProxiesService.getKey(name), HydraHeartbeatsChecker.PROXIES_KEY, name,
+                    HydraProxyRecord.LAST_HEARTBEAT, HydraProxyRecord.STATE, HydraProxy.State.IDLE.name(), state));
+
+            if (result == HydraHeartbeatScript.Result.UNKNOWN) {
+                return;
+            }
+
+            if (result == HydraHeartbeatScript.Result.MOVED && previousState != null) {
+                System.out.println("'" + name + "' sends heartbeats again.");
+            }
+            this.publishUpdate(name);
+        }
     }
 
     public void saveProxy(HydraProxy proxy) {
-        this.hydra.getRedis().process(jedis -> jedis.set(HydraProxiesService.HASH + proxy.getName(), HydraAPI.GSON.toJson(proxy)));
+        this.hydra.getRedis().process(jedis -> {
+            final Transaction transaction = jedis.multi();
+
+            HydraProxyRecord.write(transaction, proxy);
+            transaction.sadd(HydraProxiesService.ALL_INDEX, proxy.getName());
+            transaction.exec();
+        });
+    }
+
+    /**
+     * Publish the current state of a proxy at the end of the coalescing window.<br>
+     * The proxy is read when the event is published, so several updates of the window only cost one read.
+     *
+     * @param name The name of the updated proxy
+     */
+    public void publishUpdate(String name) {
+        this.hydra.getEventCoalescer().publish(name, () -> {
+            final HydraProxy proxy = this.proxiesService.getProxy(name);
+
+            if (proxy == null) {
+                return null;
+            }
+
+            final HydraDeltaTracker.Change change = this.deltaTracker.track(name, proxy);
+
+            return change == null ? null : new HydraProxyUpdatedEvent(proxy, change.getVersion(), change.getDelta());
+        });
     }
 
 }
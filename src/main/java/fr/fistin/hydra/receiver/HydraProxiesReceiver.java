@@ -1,6 +1,8 @@
 package fr.fistin.hydra.receiver;
 
 import fr.fistin.hydra.Hydra;
+import fr.fistin.hydra.api.player.packet.HydraPlayerJoinPacket;
+import fr.fistin.hydra.api.player.packet.HydraPlayerLeavePacket;
 import fr.fistin.hydra.api.protocol.HydraChannel;
 import fr.fistin.hydra.api.protocol.heartbeat.HydraHeartbeatPacket;
 import fr.fistin.hydra.api.protocol.packet.HydraPacket;
@@ -9,6 +11,7 @@ import fr.fistin.hydra.api.protocol.packet.IHydraPacketReceiver;
 import fr.fistin.hydra.api.protocol.response.HydraResponse;
 import fr.fistin.hydra.api.protocol.response.HydraResponseType;
 import fr.fistin.hydra.api.proxy.HydraProxy;
+import fr.fistin.hydra.api.proxy.packet.HydraPatchProxyPacket;
 import fr.fistin.hydra.api.proxy.packet.HydraUpdateProxyPacket;
 import fr.fistin.hydra.api.server.HydraServer;
 import fr.fistin.hydra.api.server.packet.HydraUpdateServerPacket;
@@ -39,18 +42,22 @@ public class HydraProxiesReceiver implements IHydraPacketReceiver {
             this.proxyManager.updateProxy(proxy);
 
             return HydraResponseType.OK.asResponse();
-        } else if (packet instanceof HydraHeartbeatPacket) {
-            final HydraProxy proxy = Hydra.get().getAPI().getProxiesService().getProxy(header.getSender());
-
-            if (proxy != null) {
-                if (proxy.heartbeat()) {
-                    this.proxyManager.updateProxy(proxy);
-                } else {
-                    this.proxyManager.saveProxy(proxy);
-                }
-                return HydraResponseType.OK.asResponse();
+        } else if (packet instanceof final HydraPatchProxyPacket patchPacket) {
+            if (!header.getSender().equals(patchPacket.getName())) {
+                return HydraResponseType.NOT_OK.asResponse().withMessage("Only the concerned proxy can update its information!");
             }
-            return HydraResponseType.NOT_OK.asResponse();
+
+            return this.proxyManager.patchProxy(patchPacket) ? HydraResponseType.OK.asResponse() : HydraResponseType.NOT_OK.asResponse();
+        } else if (packet instanceof final HydraPlayerJoinPacket joinPacket) {
+            Hydra.get().getPlayerManager().joinProxy(header.getSender(), joinPacket.getPlayer());
+
+            return HydraResponseType.OK.asResponse();
+        } else if (packet instanceof final HydraPlayerLeavePacket leavePacket) {
+            Hydra.get().getPlayerManager().leaveProxy(header.getSender(), leavePacket.getPlayer());
+
+            return HydraResponseType.OK.asResponse();
+        } else if (packet instanceof final HydraHeartbeatPacket heartbeatPacket) {
+            return (this.proxyManager.heartbeat(header.getSender(), heartbeatPacket.getMetrics()) ? HydraResponseType.OK : HydraResponseType.NOT_OK).asResponse();
         }
         return HydraResponseType.NONE.asResponse();
     }
@@ -2,6 +2,8 @@ package fr.fistin.hydra.receiver;
 
 import fr.fistin.hydra.Hydra;
 import fr.fistin.hydra.api.protocol.HydraChannel;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadMetrics;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadQueryPacket;
 import fr.fistin.hydra.api.protocol.packet.HydraPacket;
 import fr.fistin.hydra.api.protocol.packet.HydraPacketHeader;
 import fr.fistin.hydra.api.protocol.packet.IHydraPacketReceiver;
@@ -14,6 +16,8 @@ import fr.fistin.hydra.api.server.packet.HydraStopServerPacket;
 import fr.fistin.hydra.proxy.HydraProxyManager;
 import fr.fistin.hydra.server.HydraServerManager;
 
+import java.util.List;
+
 /**
  * Created by AstFaster
  * on 02/11/2022 at 09:27
@@ -38,6 +42,10 @@ public class HydraQueryReceiver implements IHydraPacketReceiver {
             return new HydraResponse(HydraResponseType.OK).withMessage(this.proxyManager.startProxy(proxyPacket.getProxyInfo()));
         } else if (packet instanceof final HydraStopProxyPacket proxyPacket) {
             return (this.proxyManager.stopProxy(proxyPacket.getProxyName()) ? HydraResponseType.OK : HydraResponseType.NOT_OK).asResponse();
+        } else if (packet instanceof final HydraLoadQueryPacket loadPacket) {
+            final List<HydraLoadMetrics> metrics = Hydra.get().getHeartbeatsChecker().getLoads().get(loadPacket.getName());
+
+            return metrics != null ? new HydraResponse(HydraResponseType.OK).withMessage(metrics) : HydraResponseType.NOT_OK.asResponse();
         }
         return HydraResponseType.NONE.asResponse();
     }
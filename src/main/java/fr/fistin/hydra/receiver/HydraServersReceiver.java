@@ -2,6 +2,8 @@ package fr.fistin.hydra.receiver;
 
 import fr.fistin.hydra.Hydra;
 import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.player.packet.HydraPlayerJoinPacket;
+import fr.fistin.hydra.api.player.packet.HydraPlayerLeavePacket;
 import fr.fistin.hydra.api.protocol.HydraChannel;
 import fr.fistin.hydra.api.protocol.heartbeat.HydraHeartbeatPacket;
 import fr.fistin.hydra.api.protocol.packet.HydraPacket;
@@ -10,6 +12,7 @@ import fr.fistin.hydra.api.protocol.packet.IHydraPacketReceiver;
 import fr.fistin.hydra.api.protocol.response.HydraResponse;
 import fr.fistin.hydra.api.protocol.response.HydraResponseType;
 import fr.fistin.hydra.api.server.HydraServer;
+import fr.fistin.hydra.api.server.packet.HydraPatchServerPacket;
 import fr.fistin.hydra.api.server.packet.HydraUpdateServerPacket;
 import fr.fistin.hydra.proxy.HydraProxyManager;
 import fr.fistin.hydra.server.HydraServerManager;
@@ -38,18 +41,22 @@ public class HydraServersReceiver implements IHydraPacketReceiver {
             this.serverManager.updateServer(server);
 
             return HydraResponseType.OK.asResponse();
-        } else if (packet instanceof HydraHeartbeatPacket) {
-            final HydraServer server = Hydra.get().getAPI().getServersService().getServer(header.getSender());
-
-            if (server != null) {
-                if (server.heartbeat()) {
-                    this.serverManager.updateServer(server);
-                } else {
-                    this.serverManager.saveServer(server);
-                }
-                return HydraResponseType.OK.asResponse();
+        } else if (packet instanceof final HydraPatchServerPacket patchPacket) {
+            if (!header.getSender().equals(patchPacket.getName())) {
+                return HydraResponseType.NOT_OK.asResponse().withMessage("Only the concerned server can update its information!");
             }
-            return HydraResponseType.NOT_OK.asResponse();
+
+            return this.serverManager.patchServer(patchPacket) ? HydraResponseType.OK.asResponse() : HydraResponseType.NOT_OK.asResponse();
+        } else if (packet instanceof final HydraPlayerJoinPacket joinPacket) {
+            Hydra.get().getPlayerManager().joinServer(header.getSender(), joinPacket.getPlayer());
+
+            return HydraResponseType.OK.asResponse();
+        } else if (packet instanceof final HydraPlayerLeavePacket leavePacket) {
+            Hydra.get().getPlayerManager().leaveServer(header.getSender(), leavePacket.getPlayer());
+
+            return HydraResponseType.OK.asResponse();
+        } else if (packet instanceof final HydraHeartbeatPacket heartbeatPacket) {
+            return (this.serverManager.heartbeat(header.getSender(), heartbeatPacket.getMetrics()) ? HydraResponseType.OK : HydraResponseType.NOT_OK).asResponse();
         }
         return HydraResponseType.NONE.asResponse();
     }
@@ -0,0 +1,122 @@
+package fr.fistin.hydra.redis;
+
+import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import fr.fistin.hydra.api.proxy.HydraProxiesService;
+import fr.fistin.hydra.api.proxy.HydraProxy;
+import fr.fistin.hydra.api.proxy.HydraProxyRecord;
+import fr.fistin.hydra.api.server.HydraServer;
+import fr.fistin.hydra.api.server.HydraServerRecord;
+import fr.fistin.hydra.api.server.HydraServersService;
+import fr.fistin.hydra.server.HydraServersIndexer;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Moves the servers and proxies stored with an old layout to the current one:
+ * a JSON value in hydra:servers:&lt;type&gt;:&lt;name&gt; or hydra:servers:&lt;name&gt; becomes
+ * the hash hydra:servers:&lt;name&gt; (see {@link HydraServerRecord}), and is added to the set of all servers.<br>
+ * The migrated servers are then indexed like the saved ones (type, game type, map, state, accessibility and free slots).
+ */
+public class HydraKeysMigration {
+
+    private static final int SCAN_COUNT = 500;
+
+    private final HydraRedis redis;
+    private final HydraServersIndexer indexer;
+
+    public HydraKeysMigration(HydraRedis redis, HydraServersIndexer indexer) {
+        this.redis = redis;
+        this.indexer = indexer;
+    }
+
+    public void migrate() {
+        final List<HydraServer> migratedServers = new ArrayList<>();
+
+        this.redis.process(jedis -> {
+            final int servers = this.scan(jedis, HydraServersService.HASH, key -> {
+                final HydraServer server = HydraAPI.GSON.fromJson(jedis.get(key), HydraServer.class);
+                final String newKey = HydraServersService.getKey(server.getName());
+
+                // A record already exists with the new layout: it's the most recent one
+                if (!newKey.equals(key) && jedis.exists(newKey)) {
+                    jedis.del(key);
+                    return;
+                }
+
+                final Transaction transaction = jedis.multi();
+
+                transaction.del(key);
+                HydraServerRecord.write(transaction, server);
+                this.addPlayers(transaction, HydraPlayersService.SERVERS_HASH + server.getName(), server.getPlayers());
+                transaction.sadd(HydraServersService.ALL_INDEX, server.getName());
+                transaction.exec();
+
+                migratedServers.add(server);
+            });
+            final int proxies = this.scan(jedis, HydraProxiesService.HASH, key -> {
+                final HydraProxy proxy = HydraAPI.GSON.fromJson(jedis.get(key), HydraProxy.class);
+                final Transaction transaction = jedis.multi();
+
+                transaction.del(key);
+                HydraProxyRecord.write(transaction, proxy);
+                this.addPlayers(transaction, HydraPlayersService.PROXIES_HASH + proxy.getName(), proxy.getPlayers());
+                transaction.sadd(HydraProxiesService.ALL_INDEX, proxy.getName());
+                transaction.exec();
+            });
+
+            if (servers > 0 || proxies > 0) {
+                System.out.println("Migrated " + servers + " server(s) and " + proxies + " proxy(ies) to the current Redis layout.");
+            }
+        });
+
+        // The proxies are only indexed in the set of all proxies, already filled above
+        for (HydraServer server : migratedServers) {
+            this.indexer.index(server);
+        }
+    }
+
+    private void addPlayers(Transaction transaction, String key, Set<UUID> players) {
+        if (players != null && !players.isEmpty()) {
+            transaction.sadd(key, players.stream().map(UUID::toString).toArray(String[]::new));
+        }
+    }
+
+    /**
+     * Migrate all the records stored as a JSON value under a hash
+     *
+     * @return The amount of migrated records
+     */
+    private int scan(Jedis jedis, String hash, Consumer<String> migration) {
+        final ScanParams params = new ScanParams().match(hash + "*").count(SCAN_COUNT);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        int count = 0;
+
+        do {
+            final ScanResult<String> result = jedis.scan(cursor, params);
+
+            for (String key : result.getResult()) {
+                // Current records are hashes
+                if (!jedis.type(key).equals("string")) {
+                    continue;
+                }
+
+                migration.accept(key);
+                count++;
+            }
+
+            cursor = result.getCursor();
+        } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+
+        return count;
+    }
+
+}
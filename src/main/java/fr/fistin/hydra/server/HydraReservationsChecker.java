@@ -0,0 +1,25 @@
+package fr.fistin.hydra.server;
+
+import fr.fistin.hydra.Hydra;
+import fr.fistin.hydra.api.server.HydraServerSlots;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives the slots of the expired reservations back to their servers.
+ */
+public class HydraReservationsChecker {
+
+    public void start() {
+        Hydra.get().getAPI().getExecutorService().scheduleAtFixedRate(this::check, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void check() {
+        try {
+            Hydra.get().getRedis().process(HydraServerSlots::releaseExpired);
+        } catch (Exception e) {
+            System.err.println("Couldn't release the expired reservations! Error: " + e.getMessage());
+        }
+    }
+
+}
@@ -2,17 +2,34 @@ package fr.fistin.hydra.server;
 
 import fr.fistin.hydra.Hydra;
 import fr.fistin.hydra.api.HydraAPI;
+import fr.fistin.hydra.api.protocol.heartbeat.HydraLoadMetrics;
 import fr.fistin.hydra.api.server.HydraServer;
 import fr.fistin.hydra.api.server.HydraServerCreationInfo;
+import fr.fistin.hydra.api.server.HydraServerRecord;
 import fr.fistin.hydra.api.server.HydraServersService;
 import fr.fistin.hydra.api.server.event.HydraServerStartedEvent;
 import fr.fistin.hydra.api.server.event.HydraServerStoppedEvent;
 import fr.fistin.hydra.api.server.event.HydraServerUpdatedEvent;
+import fr.fistin.hydra.api.server.packet.HydraPatchServerPacket;
+import fr.fistin.hydra.event.HydraDeltaTracker;
+import fr.fistin.hydra.heartbeat.HydraHeartbeatScript;
+import fr.fistin.hydra.heartbeat.HydraHeartbeatsChecker;
+import fr.fistin.hydra.heartbeat.HydraLivenessTable;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class HydraServerManager {
 
     private final HydraServersService serversService;
     private final HydraServersHandler handler;
+    private final HydraDeltaTracker deltaTracker;
+    private final HydraServersIndexer indexer;
+
+    /** Orders the idle transitions of the servers and their recoveries */
+    private final Object livenessLock = new Object();
 
     private final Hydra hydra;
 
@@ -20,6 +37,8 @@ public class HydraServerManager {
         this.hydra = hydra;
         this.serversService = this.hydra.getAPI().getServersService();
         this.handler = new HydraServersHandler();
+        this.deltaTracker = new HydraDeltaTracker();
+        this.indexer = new HydraServersIndexer(this.hydra);
     }
 
     public HydraServer startServer(HydraServerCreationInfo serverInfo) {
@@ -28,6 +47,7 @@ public class HydraServerManager {
         this.saveServer(server);
 
         this.handler.startServer(server);
+        this.hydra.getStatsManager().serverStarted(server);
         this.hydra.getAPI().getEventBus().publish(new HydraServerStartedEvent(server));
 
         System.out.println("Started '" + server + "' server.");
@@ -36,21 +56,32 @@ public class HydraServerManager {
     }
 
     public boolean stopServer(String name) {
-        final HydraServer server = this.serversService.getServer(name);
-
         this.handler.stopServer(name);
 
-        if (server == null) {
+        if (!this.patchServer(new HydraPatchServerPacket(name).withState(HydraServer.State.SHUTDOWN))) {
             System.err.println("Couldn't stop a server with the name: " + name + "!");
             return false;
         }
 
-        server.setState(HydraServer.State.SHUTDOWN);
+        this.hydra.getEventCoalescer().flush(name);
+        this.deltaTracker.forget(name);
+        this.hydra.getHeartbeatsChecker().getServers().remove(name);
+        this.hydra.getHeartbeatsChecker().getLoads().remove(name);
 
-        this.updateServer(server);
+        final HydraServer server = this.serversService.getServer(name);
 
+        this.hydra.getPlayerManager().clearServer(name);
+        this.hydra.getStatsManager().serverStopped(server);
         this.hydra.getAPI().getEventBus().publish(new HydraServerStoppedEvent(server));
-        this.hydra.getRedis().process(jedis -> jedis.del(HydraServersService.HASH + server.getType() + ":" + server.getName()));
+        this.hydra.getRedis().process(jedis -> {
+            final Pipeline pipeline = jedis.pipelined();
+
+            HydraServerRecord.delete(pipeline, name);
+            pipeline.zrem(HydraHeartbeatsChecker.SERVERS_KEY, name);
+
+            pipeline.sync();
+        });
+        this.indexer.remove(name);
 
         System.out.println("Stopped '" + name + "' server.");
 
@@ -59,11 +90,199 @@ public class HydraServerManager {
 
     public void updateServer(HydraServer server) {
         this.saveServer(server);
-        this.hydra.getAPI().getEventBus().publish(new HydraServerUpdatedEvent(server));
+        // The record doesn't store the players anymore: the ones reported by older plugins are applied as joins and leaves
+        this.hydra.getPlayerManager().syncServer(server.getName(), server.getPlayers());
+        this.publishUpdate(server.getName());
+    }
+
+    public boolean patchServer(HydraPatchServerPacket patch) {
+        final String name = patch.getName();
+        final String key = HydraServersService.getKey(name);
+        final Map<String, String> fields = new HashMap<>();
+        final Map<String, String> indexedValues = new HashMap<>();
+
+        if (patch.getState() != null) {
+            fields.put(HydraServerRecord.STATE, patch.getState().name());
+            indexedValues.put(HydraServersService.STATE_INDEX, patch.getState().name());
+        }
+        if (patch.getMap() != null) {
+            fields.put(HydraServerRecord.MAP, patch.getMap());
+            indexedValues.put(HydraServersService.MAP_INDEX, patch.getMap());
+        }
+        if (patch.getAccessibility() != null) {
+            fields.put(HydraServerRecord.ACCESSIBILITY, patch.getAccessibility().name());
+            indexedValues.put(HydraServersService.ACCESSIBILITY_INDEX, patch.getAccessibility().name());
+        }
+        if (patch.getSlots() != null) {
+            fields.put(HydraServerRecord.SLOTS, String.valueOf(patch.getSlots()));
+        }
+
+        final boolean exists = this.hydra.getRedis().get(jedis -> {
+            // Don't create a partial server if it doesn't exist
+            jedis.watch(key);
+
+            if (!jedis.exists(key)) {
+                jedis.unwatch();
+                return false;
+            }
+
+            final Transaction transaction = jedis.multi();
+
+            if (!fields.isEmpty()) {
+                transaction.hset(key, fields);
+            }
+            if (patch.getData() != null) {
+                transaction.set(HydraServerRecord.DATA_HASH + name, HydraAPI.GSON.toJson(patch.getData()));
+            }
+
+            return transaction.exec() != null;
+        });
+
+        if (!exists) {
+            return false;
+        }
+
+        if (patch.getAddedPlayers() != null) {
+            patch.getAddedPlayers().forEach(player -> this.hydra.getPlayerManager().joinServer(name, player));
+        }
+        if (patch.getRemovedPlayers() != null) {
+            patch.getRemovedPlayers().forEach(player -> this.hydra.getPlayerManager().leaveServer(name, player));
+        }
+
+        this.indexer.patch(name, indexedValues);
+        this.publishUpdate(name);
+
+        return true;
+    }
+
+    public boolean heartbeat(String name, HydraLoadMetrics metrics) {
+        if (!this.heartbeat(name)) {
+            return false;
+        }
+
+        if (metrics != null) {
+            this.hydra.getHeartbeatsChecker().getLoads().record(name, metrics);
+        }
+        return true;
+    }
+
+    private boolean heartbeat(String name) {
+        final HydraLivenessTable liveness = this.hydra.getHeartbeatsChecker().getServers();
+        final HydraLivenessTable.Beat beat = liveness.beat(name);
+
+        // Known server: the heartbeat is only kept in memory
+        if (beat == HydraLivenessTable.Beat.ALIVE) {
+            return true;
+        }
+        if (beat == HydraLivenessTable.Beat.RECOVERED) {
+            this.recover(name, liveness);
+            return true;
+        }
+
+        final HydraHeartbeatScript.Result result = this.hydra.getRedis().get(jedis -> HydraHeartbeatScript.apply(jedis, HydraServersService.getKey(name), HydraHeartbeatsChecker.SERVERS_KEY, name,
+                HydraServerRecord.LAST_HEARTBEAT, HydraServerRecord.STATE, HydraServer.State.CREATING.name(), HydraServer.State.STARTING.name()));
+
+        if (result == HydraHeartbeatScript.Result.MOVED) {
+            // First heartbeat of the server: it's now starting
+            this.indexer.patch(name, Map.of(HydraServersService.STATE_INDEX, HydraServer.State.STARTING.name()));
+            this.publishUpdate(name);
+        }
+        if (result == HydraHeartbeatScript.Result.UNKNOWN) {
+            return false;
+        }
+
+        liveness.add(name);
+
+        return true;
+    }
+
+    /**
+     * Make a server idle after it stopped sending heartbeats
+     *
+     * @param name The name of the server
+     * @param lastHeartbeat The time of its last heartbeat
+     */
+    public void idle(String name, long lastHeartbeat) {
+        final HydraLivenessTable liveness = this.hydra.getHeartbeatsChecker().getServers();
+
+        synchronized (this.livenessLock) {
+            // A heartbeat was received in the meantime
+            if (!liveness.isIdle(name)) {
+                return;
+            }
+
+            final String previousState = this.hydra.getRedis().get(jedis -> HydraHeartbeatScript.idle(jedis, HydraServersService.getKey(name), HydraHeartbeatsChecker.SERVERS_KEY, name,
+                    HydraServerRecord.LAST_HEARTBEAT, HydraServerRecord.STATE, HydraServer.State.IDLE.name(), lastHeartbeat));
+
+            if (previousState == null) {
+                return;
+            }
+
+            liveness.setPreviousState(name, previousState);
+            this.indexer.patch(name, Map.of(HydraServersService.STATE_INDEX, HydraServer.State.IDLE.name()));
+            this.publishUpdate(name);
+        }
+    }
+
+    /**
+     * Restore the state of a server that was idle and sends heartbeats again
+     *
+     * @param name The name of the server
+     * @param liveness The liveness table of the servers
+     */
+    private void recover(String name, HydraLivenessTable liveness) {
+        synchronized (this.livenessLock) {
+            // Unknown if the server recovered before being made idle in Redis: only its heartbeat is written then
+            final String previousState = liveness.takePreviousState(name);
+            final String state = previousState != null ? previousState : HydraServer.State.IDLE.name();
+            final HydraHeartbeatScript.Result result = this.hydra.getRedis().get(jedis -> HydraHeartbeatScript.apply(jedis, HydraServersService.getKey(name), HydraHeartbeatsChecker.SERVERS_KEY, name,
+                    HydraServerRecord.LAST_HEARTBEAT, HydraServerRecord.STATE, HydraServer.State.IDLE.name(), state));
+
+            if (result == HydraHeartbeatScript.Result.UNKNOWN) {
+                return;
+            }
+
+            if (result == HydraHeartbeatScript.Result.MOVED && previousState != null) {
+                this.indexer.patch(name, Map.of(HydraServersService.STATE_INDEX, state));
+                System.out.println("'" + name + "' sends heartbeats again.");
+            }
+            this.publishUpdate(name);
+        }
     }
 
     public void saveServer(HydraServer server) {
-        this.hydra.getRedis().process(jedis -> jedis.set(HydraServersService.HASH + server.getType() + ":" + server.getName(), HydraAPI.GSON.toJson(server)));
+        this.hydra.getRedis().process(jedis -> {
+            final Transaction transaction = jedis.multi();
+
+            HydraServerRecord.write(transaction, server);
+
+            transaction.exec();
+        });
+        this.indexer.index(server);
+    }
+
+    /**
+     * Publish the current state of a server at the end of the coalescing window.<br>
+     * The server is read when the event is published, so several updates of the window only cost one read.
+     *
+     * @param name The name of the updated server
+     */
+    public void publishUpdate(String name) {
+        this.hydra.getEventCoalescer().publish(name, () -> {
+            final HydraServer server = this.serversService.getServer(name);
+
+            if (server == null) {
+                return null;
+            }
+
+            final HydraDeltaTracker.Change change = this.deltaTracker.track(name, server);
+
+            return change == null ? null : new HydraServerUpdatedEvent(server, change.getVersion(), change.getDelta());
+        });
+    }
+
+    public HydraServersIndexer getIndexer() {
+        return this.indexer;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,167 @@
+package fr.fistin.hydra.server;
+
+import fr.fistin.hydra.Hydra;
+import fr.fistin.hydra.api.server.HydraServer;
+import fr.fistin.hydra.api.server.HydraServerSlots;
+import fr.fistin.hydra.api.server.HydraServersService;
+import redis.clients.jedis.Transaction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the Redis indexes of the servers (by type, game type, map, accessibility and state), and their free slots indexes.<br>
+ * The indexed values of each server are also stored in Redis to move it between indexes after a restart.
+ */
+public class HydraServersIndexer {
+
+    /** The hash storing the indexed values of each server */
+    private static final String VALUES_HASH = HydraServersService.INDEX_HASH + "values:";
+
+    /** The last indexed values of each server */
+    private final Map<String, Map<String, String>> indexedValues = new ConcurrentHashMap<>();
+
+    private final Hydra hydra;
+
+    public HydraServersIndexer(Hydra hydra) {
+        this.hydra = hydra;
+    }
+
+    public synchronized void index(HydraServer server) {
+        this.index(server.getName(), HydraServersService.getIndexedValues(server));
+        this.indexFreeSlots(server.getName());
+    }
+
+    /**
+     * Only update some indexed values of a server
+     *
+     * @param name The name of the server
+     * @param changedValues The changed values, by indexed field
+     */
+    public synchronized void patch(String name, Map<String, String> changedValues) {
+        if (!changedValues.isEmpty()) {
+            final Map<String, String> values = new HashMap<>(this.getIndexedValues(name));
+
+            values.putAll(changedValues);
+
+            this.index(name, values);
+        }
+
+        // The slots or the players may have changed too
+        this.indexFreeSlots(name);
+    }
+
+    /**
+     * Update the free slots of a server in the free slots indexes.<br>
+     * The server is only indexed if it's joinable (public and ready) and has at least one free slot, reservations included.
+     *
+     * @param name The name of the server
+     */
+    public synchronized void indexFreeSlots(String name) {
+        this.hydra.getRedis().process(jedis -> HydraServerSlots.refresh(jedis, name));
+    }
+
+    /**
+     * Index the free slots of all the servers (e.g. the servers started before the free slots indexes existed)
+     */
+    public void indexFreeSlots() {
+        final Set<String> names = this.hydra.getRedis().get(jedis -> jedis.smembers(HydraServersService.ALL_INDEX));
+
+        for (String name : names) {
+            this.indexFreeSlots(name);
+        }
+    }
+
+    private void index(String name, Map<String, String> values) {
+        final Map<String, String> previousValues = this.getIndexedValues(name);
+
+        if (values.equals(previousValues)) {
+            return;
+        }
+
+        this.hydra.getRedis().process(jedis -> {
+            final Transaction transaction = jedis.multi();
+            final List<String> freeSlotsKeys = getFreeSlotsKeys(values);
+
+            // The server moved to other free slots indexes (e.g. its map changed)
+            for (String key : getFreeSlotsKeys(previousValues)) {
+                if (!freeSlotsKeys.contains(key)) {
+                    transaction.zrem(key, name);
+                }
+            }
+
+            for (Map.Entry<String, String> entry : previousValues.entrySet()) {
+                if (!entry.getValue().equals(values.get(entry.getKey()))) {
+                    transaction.srem(HydraServersService.getIndexKey(entry.getKey(), entry.getValue()), name);
+                }
+            }
+
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                if (!entry.getValue().equals(previousValues.get(entry.getKey()))) {
+                    transaction.sadd(HydraServersService.getIndexKey(entry.getKey(), entry.getValue()), name);
+                }
+            }
+
+            transaction.sadd(HydraServersService.ALL_INDEX, name);
+            transaction.del(VALUES_HASH + name);
+            transaction.hset(VALUES_HASH + name, values);
+            transaction.exec();
+        });
+
+        this.indexedValues.put(name, values);
+    }
+
+    public synchronized void remove(String name) {
+        final Map<String, String> previousValues = this.getIndexedValues(name);
+
+        this.hydra.getRedis().process(jedis -> {
+            final Transaction transaction = jedis.multi();
+
+            for (Map.Entry<String, String> entry : previousValues.entrySet()) {
+                transaction.srem(HydraServersService.getIndexKey(entry.getKey(), entry.getValue()), name);
+            }
+
+            for (String key : getFreeSlotsKeys(previousValues)) {
+                transaction.zrem(key, name);
+            }
+
+            transaction.srem(HydraServersService.ALL_INDEX, name);
+            transaction.del(VALUES_HASH + name);
+            transaction.exec();
+        });
+
+        this.indexedValues.remove(name);
+    }
+
+    /**
+     * Get the last indexed values of a server (e.g. its type)
+     *
+     * @param name The name of the server
+     * @return The indexed values, by indexed field
+     */
+    public Map<String, String> getIndexedValues(String name) {
+        final Map<String, String> values = this.indexedValues.get(name);
+
+        if (values != null) {
+            return values;
+        }
+
+        final Map<String, String> storedValues = this.hydra.getRedis().get(jedis -> jedis.hgetAll(VALUES_HASH + name));
+
+        return storedValues == null ? Collections.emptyMap() : storedValues;
+    }
+
+    private static List<String> getFreeSlotsKeys(Map<String, String> values) {
+        final String type = values.get(HydraServersService.TYPE_INDEX);
+
+        if (type == null) {
+            return Collections.emptyList();
+        }
+        return HydraServersService.getFreeSlotsKeys(type, values.get(HydraServersService.GAME_TYPE_INDEX), values.get(HydraServersService.MAP_INDEX));
+    }
+
+}
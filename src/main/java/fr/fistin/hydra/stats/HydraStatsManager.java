@@ -0,0 +1,152 @@
+package fr.fistin.hydra.stats;
+
+import fr.fistin.hydra.Hydra;
+import fr.fistin.hydra.api.player.HydraPlayersService;
+import fr.fistin.hydra.api.proxy.HydraProxiesService;
+import fr.fistin.hydra.api.redis.HydraRedisScript;
+import fr.fistin.hydra.api.server.HydraServer;
+import fr.fistin.hydra.api.server.HydraServerRecord;
+import fr.fistin.hydra.api.server.HydraServersService;
+import fr.fistin.hydra.api.stats.HydraStats;
+import redis.clients.jedis.Transaction;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the counters of the network ({@link HydraStats}).<br>
+ * They are updated on each join, leave, start and stop, and recomputed regularly to fix any drift.<br>
+ * The increments are not atomic with the changes they count (e.g. a server is indexed, then counted in another round trip):
+ * a recomputation running between both counts the change twice, until the next recomputation.
+ */
+public class HydraStatsManager {
+
+    /** The delay between two recomputations of the counters (in seconds) */
+    private static final int RECOMPUTE_DELAY = 60;
+
+    /** Recompute all the counters from the servers and proxies. Done in a script, so all the counters are computed from the same state */
+    private static final HydraRedisScript RECOMPUTE = new HydraRedisScript(String.join("\n",
+            "local stats = {}",
+            "local function add(field, amount)",
+            "  stats[field] = (stats[field] or 0) + amount",
+            "end",
+            "add('" + HydraStats.PLAYERS + "', 0)",
+            "add('" + HydraStats.SERVERS + "', 0)",
+            "add('" + HydraStats.PROXIES + "', 0)",
+            "for _, name in ipairs(redis.call('SMEMBERS', '" + HydraServersService.ALL_INDEX + "')) do",
+            "  local fields = redis.call('HMGET', '" + HydraServersService.HASH + "' .. name, '" + HydraServerRecord.TYPE + "', '" + HydraServerRecord.GAME_TYPE + "')",
+            "  if fields[1] then",
+            "    local players = redis.call('SCARD', '" + HydraPlayersService.SERVERS_HASH + "' .. name)",
+            "    add('" + HydraStats.SERVERS + "', 1)",
+            "    add('" + HydraStats.SERVERS + ":' .. fields[1], 1)",
+            "    add('" + HydraStats.PLAYERS + ":' .. fields[1], players)",
+            "    if fields[2] then",
+            "      add('" + HydraStats.SERVERS + ":' .. fields[1] .. ':' .. fields[2], 1)",
+            "      add('" + HydraStats.PLAYERS + ":' .. fields[1] .. ':' .. fields[2], players)",
+            "    end",
+            "  end",
+            "end",
+            "for _, name in ipairs(redis.call('SMEMBERS', '" + HydraProxiesService.ALL_INDEX + "')) do",
+            "  if redis.call('EXISTS', '" + HydraProxiesService.HASH + "' .. name) == 1 then",
+            "    add('" + HydraStats.PROXIES + "', 1)",
+            "    add('" + HydraStats.PLAYERS + "', redis.call('SCARD', '" + HydraPlayersService.PROXIES_HASH + "' .. name))",
+            "  end",
+            "end",
+            "local args = {}",
+            "for field, value in pairs(stats) do",
+            "  table.insert(args, field)",
+            "  table.insert(args, value)",
+            "end",
+            "redis.call('DEL', KEYS[1])",
+            "redis.call('HSET', KEYS[1], unpack(args))",
+            "return #args / 2"));
+
+    private final Hydra hydra;
+
+    public HydraStatsManager(Hydra hydra) {
+        this.hydra = hydra;
+    }
+
+    public void start() {
+        this.hydra.getAPI().getExecutorService().scheduleAtFixedRate(() -> {
+            try {
+                this.recompute();
+            } catch (Exception e) {
+                System.err.println("Couldn't recompute the network stats! Error: " + e.getMessage());
+            }
+        }, 0, RECOMPUTE_DELAY, TimeUnit.SECONDS);
+    }
+
+    public void recompute() {
+        this.hydra.getRedis().process(jedis -> RECOMPUTE.eval(jedis, Collections.singletonList(HydraStats.HASH), Collections.emptyList()));
+    }
+
+    /**
+     * Update the counters after players joined or left a server
+     *
+     * @param server The name of the server
+     * @param delta The amount of players that joined (negative if they left)
+     */
+    public void serverPlayersChanged(String server, long delta) {
+        final Map<String, String> values = this.hydra.getServerManager().getIndexer().getIndexedValues(server);
+        final String type = values.get(HydraServersService.TYPE_INDEX);
+
+        if (type == null || delta == 0) {
+            return;
+        }
+
+        this.increment(HydraStats.PLAYERS, type, values.get(HydraServersService.GAME_TYPE_INDEX), delta);
+    }
+
+    /**
+     * Update the counters after players joined or left a proxy
+     *
+     * @param delta The amount of players that joined (negative if they left)
+     */
+    public void proxyPlayersChanged(long delta) {
+        if (delta != 0) {
+            this.hydra.getRedis().process(jedis -> jedis.hincrBy(HydraStats.HASH, HydraStats.PLAYERS, delta));
+        }
+    }
+
+    public void serverStarted(HydraServer server) {
+        this.increment(HydraStats.SERVERS, server.getType(), server.getGameType(), 1);
+    }
+
+    public void serverStopped(HydraServer server) {
+        this.increment(HydraStats.SERVERS, server.getType(), server.getGameType(), -1);
+    }
+
+    public void proxyStarted() {
+        this.hydra.getRedis().process(jedis -> jedis.hincrBy(HydraStats.HASH, HydraStats.PROXIES, 1));
+    }
+
+    public void proxyStopped() {
+        this.hydra.getRedis().process(jedis -> jedis.hincrBy(HydraStats.HASH, HydraStats.PROXIES, -1));
+    }
+
+    /**
+     * Increment a counter globally, for a type of servers and for a type of game
+     */
+    private void increment(String counter, String type, String gameType, long delta) {
+        this.hydra.getRedis().process(jedis -> {
+            // A transaction: a recomputation never sees only some of the counters incremented
+            final Transaction transaction = jedis.multi();
+
+            // The global players are counted on the proxies
+            if (!counter.equals(HydraStats.PLAYERS)) {
+                transaction.hincrBy(HydraStats.HASH, counter, delta);
+            }
+
+            transaction.hincrBy(HydraStats.HASH, HydraStats.getField(counter, type, null), delta);
+
+            if (gameType != null) {
+                transaction.hincrBy(HydraStats.HASH, HydraStats.getField(counter, type, gameType), delta);
+            }
+
+            transaction.exec();
+        });
+    }
+
+}